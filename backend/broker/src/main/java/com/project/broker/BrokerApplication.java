@@ -1,5 +1,6 @@
 package com.project.broker;
 
+import com.project.broker.client.InterNodeClient;
 import com.project.broker.service.BrokerService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
@@ -8,7 +9,6 @@ import org.springframework.boot.web.context.WebServerInitializedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.springframework.kafka.core.ConsumerFactory;
@@ -24,11 +24,6 @@ public class BrokerApplication {
 		SpringApplication.run(BrokerApplication.class, args);
 	}
 
-	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
-
 	@EventListener
 	public void onWebServerInitialized(WebServerInitializedEvent event) {
 		this.port = event.getWebServer().getPort();
@@ -37,11 +32,11 @@ public class BrokerApplication {
 	}
 
 	@Bean
-	public BrokerService brokerService(RestTemplate restTemplate, 
-									  KafkaTemplate<String, String> kafkaTemplate,
+	public BrokerService brokerService(KafkaTemplate<String, String> kafkaTemplate,
 									  AdminClient adminClient,
-									  ConsumerFactory<String, String> consumerFactory) {
-		BrokerService brokerService = new BrokerService(restTemplate, kafkaTemplate, adminClient, consumerFactory);
+									  ConsumerFactory<String, String> consumerFactory,
+									  InterNodeClient interNodeClient) {
+		BrokerService brokerService = new BrokerService(kafkaTemplate, adminClient, consumerFactory, interNodeClient);
 		brokerService.setPort(port);
 		return brokerService;
 	}
@@ -0,0 +1,147 @@
+package com.project.broker.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking client for calls to other nodes.
+ * Requests share the pooled interNodeHttpClient, each carries the Lamport
+ * timestamp as a query parameter, and each has its own timeout.
+ */
+@Component
+public class InterNodeClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${internode.http.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    public InterNodeClient(HttpClient interNodeHttpClient, ObjectMapper objectMapper) {
+        this.httpClient = interNodeHttpClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Builds a URL for another node, adding and encoding the query parameters
+     * @param baseUrl   the node's URL, e.g. http://localhost:8081
+     * @param path      the endpoint path, e.g. /api/heartbeat
+     * @param params    extra query parameters, may be empty
+     * @param timestamp the sender's logical clock
+     */
+    public URI uri(String baseUrl, String path, Map<String, ?> params, long timestamp) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl).path(path);
+        params.forEach(builder::queryParam);
+        return builder.queryParam("timestamp", timestamp).encode().build().toUri();
+    }
+
+    public CompletableFuture<String> post(String baseUrl, String path, String body, long timestamp) {
+        return post(baseUrl, path, body, timestamp, Duration.ofMillis(requestTimeoutMs));
+    }
+
+    public CompletableFuture<String> post(String baseUrl, String path, String body, long timestamp, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(uri(baseUrl, path, Map.of(), timestamp))
+                .timeout(timeout)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request);
+    }
+
+    public <T> CompletableFuture<T> post(String baseUrl, String path, Map<String, ?> params, String body, long timestamp, Class<T> responseType) {
+        HttpRequest request = HttpRequest.newBuilder(uri(baseUrl, path, params, timestamp))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Content-Type", "text/plain")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request).thenApply(responseBody -> readValue(responseBody, responseType));
+    }
+
+    public <T> CompletableFuture<T> get(String baseUrl, String path, Map<String, ?> params, long timestamp, Class<T> responseType) {
+        HttpRequest request = HttpRequest.newBuilder(uri(baseUrl, path, params, timestamp))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request).thenApply(body -> readValue(body, responseType));
+    }
+
+    /**
+     * GETs a binary response; the caller gets the whole response so it can read headers too
+     * @param accept the Accept header to send
+     */
+    public CompletableFuture<HttpResponse<byte[]>> getBytes(String baseUrl, String path, Map<String, ?> params, long timestamp,
+                                                            String accept) {
+        HttpRequest request = HttpRequest.newBuilder(uri(baseUrl, path, params, timestamp))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Accept", accept)
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() >= 300) {
+                        throw new RestClientException("HTTP " + response.statusCode() + " from " + request.uri());
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * GETs a response, preferring the given binary media type and falling back to
+     * JSON when the other node answers with JSON
+     */
+    public <T> CompletableFuture<T> getPreferringBinary(String baseUrl, String path, Map<String, ?> params, long timestamp,
+                                                        String binaryMediaType, BinaryDecoder<T> decoder, Class<T> responseType) {
+        return getBytes(baseUrl, path, params, timestamp, binaryMediaType + ", application/json;q=0.5")
+                .thenApply(response -> {
+                    String contentType = response.headers().firstValue("Content-Type").orElse("");
+                    try {
+                        if (contentType.startsWith(binaryMediaType)) {
+                            return decoder.decode(response.body());
+                        }
+                        return response.body().length == 0 ? null : objectMapper.readValue(response.body(), responseType);
+                    } catch (Exception e) {
+                        throw new CompletionException(new RestClientException("Invalid response body", e));
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    public interface BinaryDecoder<T> {
+        T decode(byte[] data) throws Exception;
+    }
+
+    private CompletableFuture<String> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() >= 300) {
+                        throw new RestClientException("HTTP " + response.statusCode() + " from " + request.uri());
+                    }
+                    return response.body();
+                });
+    }
+
+    private <T> T readValue(String body, Class<T> responseType) {
+        if (responseType == String.class) {
+            return responseType.cast(body);
+        }
+        try {
+            return body == null || body.isEmpty() ? null : objectMapper.readValue(body, responseType);
+        } catch (Exception e) {
+            throw new CompletionException(new RestClientException("Invalid response body", e));
+        }
+    }
+}
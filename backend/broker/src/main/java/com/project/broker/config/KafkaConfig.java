@@ -17,6 +17,12 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${broker.topic.partitions:6}")
+    private int partitions;
+
+    @Value("${broker.topic.replication-factor:1}")
+    private short replicationFactor;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -33,7 +39,7 @@ public class KafkaConfig {
 
     @Bean
     public NewTopic defaultTopic() {
-        // Create a default topic with 1 partition and replication factor of 1
-        return new NewTopic("default-topic", 1, (short) 1);
+        // Created with the same partitioning as topics added through the API
+        return new NewTopic("default-topic", partitions, replicationFactor);
     }
 } 
\ No newline at end of file
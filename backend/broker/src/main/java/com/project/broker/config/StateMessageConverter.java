@@ -0,0 +1,54 @@
+package com.project.broker.config;
+
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateSnapshot;
+import com.project.broker.service.StateCodec;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes snapshots and change sets in the binary StateCodec format
+ * when a request asks for it; everything else still gets JSON.
+ * Payloads larger than compressionThresholdBytes are deflated.
+ */
+public class StateMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final int compressionThresholdBytes;
+
+    public StateMessageConverter(int compressionThresholdBytes) {
+        super(MediaType.parseMediaType(StateCodec.MEDIA_TYPE));
+        this.compressionThresholdBytes = compressionThresholdBytes;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StateSnapshot.class.equals(clazz) || ChangeSet.class.equals(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] data = inputMessage.getBody().readAllBytes();
+        try {
+            return StateSnapshot.class.equals(clazz) ? StateCodec.decodeSnapshot(data) : StateCodec.decodeChangeSet(data);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid broker state payload: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        byte[] data = value instanceof StateSnapshot snapshot
+                ? StateCodec.encode(snapshot, false)
+                : StateCodec.encode((ChangeSet) value, false);
+        if (data.length > compressionThresholdBytes) {
+            data = StateCodec.compress(data);
+        }
+        outputMessage.getHeaders().setContentLength(data.length);
+        outputMessage.getBody().write(data);
+    }
+}
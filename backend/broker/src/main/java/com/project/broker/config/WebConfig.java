@@ -1,13 +1,29 @@
 package com.project.broker.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Value("${broker.sync.compression-threshold-bytes:8192}")
+    private int compressionThresholdBytes;
+
+    /**
+     * Adds the binary state format for /api/data and /api/changes. It goes last so
+     * JSON stays the default for clients that accept anything.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new StateMessageConverter(compressionThresholdBytes));
+    }
+
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
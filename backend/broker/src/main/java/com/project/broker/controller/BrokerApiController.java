@@ -1,8 +1,13 @@
 package com.project.broker.controller;
 
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateSnapshot;
+import com.project.broker.service.BootstrapSnapshots;
 import com.project.broker.service.BrokerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -38,22 +43,76 @@ public class BrokerApiController {
     @GetMapping("/messages")
     public List<String> getMessages(@RequestParam String topic, @RequestParam String subscriberUrl, @RequestParam long timestamp) {
         brokerService.updateClock(timestamp);
+        requireReady();
         if (!brokerService.isSubscriberSubscribedToTopic(subscriberUrl, topic)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Subscriber is not subscribed to this topic");
         }
         return brokerService.getMessages(topic);
     }
 
+    @GetMapping("/messages/delta")
+    public Map<String, Object> getMessagesSince(@RequestParam String topic, @RequestParam String subscriberUrl,
+                                                @RequestParam(defaultValue = "0") long since, @RequestParam long timestamp) {
+        brokerService.updateClock(timestamp);
+        requireReady();
+        if (!brokerService.isSubscriberSubscribedToTopic(subscriberUrl, topic)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Subscriber is not subscribed to this topic");
+        }
+        return brokerService.getMessagesSince(topic, since);
+    }
+
     @GetMapping("/data")
-    public Map<String, Object> getAllData(@RequestParam long timestamp) {
+    public StateSnapshot getAllData(@RequestParam long timestamp) {
         brokerService.updateClock(timestamp);
         return brokerService.getAllData();
     }
 
+    /**
+     * Serves a compressed binary snapshot of this broker's state in chunks,
+     * for brokers bootstrapping from the leader. Omit snapshotId to start a download.
+     */
+    @GetMapping(value = "/bootstrap/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getSnapshotChunk(@RequestParam(required = false) String snapshotId,
+                                                   @RequestParam(defaultValue = "0") int chunk,
+                                                   @RequestParam long timestamp) throws Exception {
+        brokerService.updateClock(timestamp);
+        BootstrapSnapshots.Chunk snapshotChunk;
+        try {
+            snapshotChunk = brokerService.getSnapshotChunk(snapshotId, chunk);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.ok()
+                .header("X-Snapshot-Id", snapshotChunk.snapshotId())
+                .header("X-Snapshot-Chunk", String.valueOf(snapshotChunk.chunk()))
+                .header("X-Snapshot-Chunks", String.valueOf(snapshotChunk.totalChunks()))
+                .body(snapshotChunk.data());
+    }
+
+    /**
+     * Whether this broker has caught up with the leader and serves messages
+     */
+    @GetMapping("/ready")
+    public boolean isReady(@RequestParam long timestamp) {
+        brokerService.updateClock(timestamp);
+        return brokerService.isReadyToReceiveMessages();
+    }
+
+    @GetMapping("/changes")
+    public ChangeSet getChanges(@RequestParam(required = false) String logId, @RequestParam(defaultValue = "0") long since,
+                                @RequestParam long timestamp) {
+        brokerService.updateClock(timestamp);
+        return brokerService.getChangesSince(logId, since);
+    }
+
+    /**
+     * Creates a topic; partitions and replicationFactor fall back to the broker's defaults
+     */
     @PostMapping("/add-topic")
-    public void addTopic(@RequestBody String topic, @RequestParam long timestamp) {
+    public void addTopic(@RequestBody String topic, @RequestParam(required = false) Integer partitions,
+                         @RequestParam(required = false) Short replicationFactor, @RequestParam long timestamp) {
         brokerService.updateClock(timestamp);
-        brokerService.addTopic(topic);
+        brokerService.addTopic(topic, partitions, replicationFactor);
     }
 
     @PostMapping("/add-message")
@@ -86,6 +145,12 @@ public class BrokerApiController {
         return brokerService.getSubscribersWithTopics();
     }
     
+    @GetMapping("/subscriber-topics")
+    public Set<String> getTopicsForSubscriber(@RequestParam String subscriberUrl, @RequestParam long timestamp) {
+        brokerService.updateClock(timestamp);
+        return brokerService.getTopicsForSubscriber(subscriberUrl);
+    }
+
     /**
      * Endpoint to handle leader-changed notifications from the coordinator
      * This is part of the Bully Algorithm implementation
@@ -102,4 +167,10 @@ public class BrokerApiController {
         brokerService.setLeader(newLeader);
         System.out.println("Received leader-changed notification. New leader: " + newLeader);
     }
-} 
\ No newline at end of file
+
+    private void requireReady() {
+        if (!brokerService.isReadyToReceiveMessages()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Broker is still catching up with the leader");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.project.broker.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response to a follower asking the leader for changes since a sequence number.
+ * When the follower is too far behind, or is following a different log,
+ * snapshotRequired is set and the follower must reload the full state instead.
+ */
+public class ChangeSet {
+
+    private String logId;
+    private long sequence;
+    private boolean snapshotRequired;
+    private List<StateChange> changes = new ArrayList<>();
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public void setLogId(String logId) {
+        this.logId = logId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isSnapshotRequired() {
+        return snapshotRequired;
+    }
+
+    public void setSnapshotRequired(boolean snapshotRequired) {
+        this.snapshotRequired = snapshotRequired;
+    }
+
+    public List<StateChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<StateChange> changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.project.broker.model;
+
+import java.util.List;
+
+/**
+ * Coordinator's reply to a broker heartbeat.
+ * Leader and brokers are only filled in when the membership epoch has moved
+ * past the one the broker already knows; otherwise changed is false.
+ */
+public class HeartbeatResponse {
+
+    private long epoch;
+    private boolean changed;
+    private String leader;
+    private List<String> brokers;
+
+    public HeartbeatResponse() {
+    }
+
+    public HeartbeatResponse(long epoch, boolean changed, String leader, List<String> brokers) {
+        this.epoch = epoch;
+        this.changed = changed;
+        this.leader = leader;
+        this.brokers = brokers;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(long epoch) {
+        this.epoch = epoch;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public void setChanged(boolean changed) {
+        this.changed = changed;
+    }
+
+    public String getLeader() {
+        return leader;
+    }
+
+    public void setLeader(String leader) {
+        this.leader = leader;
+    }
+
+    public List<String> getBrokers() {
+        return brokers;
+    }
+
+    public void setBrokers(List<String> brokers) {
+        this.brokers = brokers;
+    }
+}
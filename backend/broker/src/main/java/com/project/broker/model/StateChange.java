@@ -0,0 +1,83 @@
+package com.project.broker.model;
+
+import java.util.List;
+
+/**
+ * A single mutation of broker state, as recorded in the leader's replication log
+ */
+public class StateChange {
+
+    public enum Type {
+        ADD_TOPIC,
+        SET_TOPICS,
+        ADD_SUBSCRIBER,
+        REMOVE_SUBSCRIBER,
+        ADD_MESSAGE
+    }
+
+    private long sequence;
+    private Type type;
+    private String topic;
+    private String value;
+    private List<String> values;
+    // Position of the message in the topic's log, for ADD_MESSAGE
+    private long offset;
+
+    public StateChange() {
+    }
+
+    public StateChange(Type type, String topic, String value, List<String> values) {
+        this.type = type;
+        this.topic = topic;
+        this.value = value;
+        this.values = values;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+}
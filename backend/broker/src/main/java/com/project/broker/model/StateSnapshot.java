@@ -0,0 +1,69 @@
+package com.project.broker.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A broker's full state, together with the replication log position it reflects.
+ * Followers load it and then apply the leader's changes after sequence.
+ */
+public class StateSnapshot {
+
+    private String logId;
+    private long sequence;
+    private List<String> topics = new ArrayList<>();
+    private Map<String, List<String>> messages = new HashMap<>();
+    // Log offset of the first message in each topic's list
+    private Map<String, Long> messageStartOffsets = new HashMap<>();
+    private Map<String, List<String>> subscribers = new HashMap<>();
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public void setLogId(String logId) {
+        this.logId = logId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<String> getTopics() {
+        return topics;
+    }
+
+    public void setTopics(List<String> topics) {
+        this.topics = topics;
+    }
+
+    public Map<String, List<String>> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(Map<String, List<String>> messages) {
+        this.messages = messages;
+    }
+
+    public Map<String, Long> getMessageStartOffsets() {
+        return messageStartOffsets;
+    }
+
+    public void setMessageStartOffsets(Map<String, Long> messageStartOffsets) {
+        this.messageStartOffsets = messageStartOffsets;
+    }
+
+    public Map<String, List<String>> getSubscribers() {
+        return subscribers;
+    }
+
+    public void setSubscribers(Map<String, List<String>> subscribers) {
+        this.subscribers = subscribers;
+    }
+}
@@ -0,0 +1,42 @@
+package com.project.broker.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Picks the Kafka record key of a vote. Votes are keyed by voter name, so every
+ * vote of one voter lands on the same partition and keeps its order while a
+ * poll's votes spread over all of its partitions.
+ */
+public final class VoteKey {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private VoteKey() {
+    }
+
+    /**
+     * Returns the voter name of a {"name","vote"} message, or null for anything
+     * else, which the producer then spreads without a key
+     */
+    public static String of(String message) {
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            // Only the top-level fields are scanned, stopping at the name
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (Exception e) {
+            // Not JSON, sent without a key
+        }
+        return null;
+    }
+}
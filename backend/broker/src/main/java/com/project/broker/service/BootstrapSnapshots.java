@@ -0,0 +1,80 @@
+package com.project.broker.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encoded state snapshots the leader serves to bootstrapping brokers in chunks.
+ *
+ * A snapshot is kept for ttlMs after it was built, so a broker whose download
+ * is interrupted can resume from the chunk it stopped at. Brokers that start
+ * bootstrapping within reuseMs of each other share one snapshot rather than
+ * each making the leader encode its full state.
+ */
+public class BootstrapSnapshots {
+
+    /**
+     * One chunk of a snapshot
+     * @param snapshotId  identifies the snapshot across chunk requests
+     * @param chunk       index of this chunk
+     * @param totalChunks number of chunks in the snapshot
+     * @param data        the chunk's bytes
+     */
+    public record Chunk(String snapshotId, int chunk, int totalChunks, byte[] data) {
+    }
+
+    private record Prepared(String id, byte[] data, long createdAt) {
+    }
+
+    private final int chunkBytes;
+    private final long ttlMs;
+    private final long reuseMs;
+    private final Map<String, Prepared> snapshots = new ConcurrentHashMap<>();
+    private volatile Prepared latest;
+
+    public BootstrapSnapshots(int chunkBytes, long ttlMs, long reuseMs) {
+        this.chunkBytes = chunkBytes;
+        this.ttlMs = ttlMs;
+        this.reuseMs = reuseMs;
+    }
+
+    /**
+     * Returns the id of a recent snapshot, encoding a new one if there is none
+     */
+    public synchronized String prepare(SnapshotEncoder encoder) throws Exception {
+        long now = System.currentTimeMillis();
+        snapshots.values().removeIf(prepared -> now - prepared.createdAt() > ttlMs);
+        Prepared recent = latest;
+        if (recent != null && now - recent.createdAt() <= reuseMs && snapshots.containsKey(recent.id())) {
+            return recent.id();
+        }
+        Prepared prepared = new Prepared(UUID.randomUUID().toString(), encoder.encode(), now);
+        snapshots.put(prepared.id(), prepared);
+        latest = prepared;
+        return prepared.id();
+    }
+
+    /**
+     * Returns a chunk of a prepared snapshot, or null if the snapshot has expired
+     */
+    public Chunk chunk(String snapshotId, int chunk) {
+        Prepared prepared = snapshots.get(snapshotId);
+        if (prepared == null) {
+            return null;
+        }
+        int totalChunks = Math.max(1, (prepared.data().length + chunkBytes - 1) / chunkBytes);
+        if (chunk < 0 || chunk >= totalChunks) {
+            throw new IllegalArgumentException("Chunk " + chunk + " out of range, snapshot has " + totalChunks);
+        }
+        int from = chunk * chunkBytes;
+        int to = Math.min(prepared.data().length, from + chunkBytes);
+        return new Chunk(snapshotId, chunk, totalChunks, Arrays.copyOfRange(prepared.data(), from, to));
+    }
+
+    @FunctionalInterface
+    public interface SnapshotEncoder {
+        byte[] encode() throws Exception;
+    }
+}
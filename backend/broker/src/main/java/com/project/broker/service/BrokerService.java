@@ -1,11 +1,18 @@
 package com.project.broker.service;
 
+import com.project.broker.client.InterNodeClient;
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.HeartbeatResponse;
+import com.project.broker.model.StateChange;
+import com.project.broker.model.StateSnapshot;
+import com.project.broker.model.VoteKey;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.MessageListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
@@ -16,19 +23,26 @@ import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 @Service
 public class BrokerService {
 
-    private final RestTemplate restTemplate;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final AdminClient adminClient;
     private final ConsumerFactory<String, String> consumerFactory;
+    private final InterNodeClient interNodeClient;
 
     @Value("${coordinator.url}")
     private String coordinatorUrl;
@@ -36,40 +50,131 @@ public class BrokerService {
     @Value("${server.port}")
     private int port;
 
-    private String leader;
-    private List<String> brokers = new ArrayList<>();
-    private Set<String> topics = new HashSet<>();
-    private Map<String, List<String>> messages = new HashMap<>();
-    private Map<String, List<String>> subscribers = new HashMap<>();
-    private long logicalClock = 0;
+    @Value("${broker.replication.log-size:10000}")
+    private int replicationLogSize;
+
+    @Value("${broker.store.dir:data/broker}")
+    private String storeDir;
+
+    @Value("${broker.store.segment-bytes:8388608}")
+    private int segmentBytes;
+
+    @Value("${broker.store.segment-messages:65536}")
+    private int segmentMessages;
+
+    @Value("${broker.store.retention-segments:0}")
+    private int retentionSegments;
+
+    // Used when a topic is created without its own settings
+    @Value("${broker.topic.partitions:6}")
+    private int defaultPartitions;
+
+    @Value("${broker.topic.replication-factor:1}")
+    private short defaultReplicationFactor;
+
+    @Value("${broker.kafka.key-by-voter:true}")
+    private boolean keyByVoter;
+
+    @Value("${broker.bootstrap.chunk-bytes:1048576}")
+    private int snapshotChunkBytes;
+
+    @Value("${broker.bootstrap.snapshot-ttl-ms:60000}")
+    private long snapshotTtlMs;
+
+    @Value("${broker.bootstrap.snapshot-reuse-ms:5000}")
+    private long snapshotReuseMs;
+
+    @Value("${broker.heartbeat.interval-ms:250}")
+    private long heartbeatIntervalMs;
+
+    private volatile String leader;
+    private volatile List<String> brokers = List.of();
+    // Coordinator membership epoch that leader and brokers reflect, -1 until the first heartbeat reply
+    private volatile long membershipEpoch = -1;
+    private BrokerState state;
+    // Message store directory created for a random port, deleted on shutdown
+    private Path temporaryStoreDir;
+    private final LamportClock clock = new LamportClock();
+    private ReplicationLog replicationLog;
+    // Snapshots this broker serves to others while it is the leader
+    private BootstrapSnapshots bootstrapSnapshots;
+    // Snapshot being downloaded from the leader, kept so an interrupted download can resume
+    private volatile SnapshotDownload snapshotDownload;
+    // Position in the leader's replication log that this broker's state reflects
+    private volatile String replicatedLogId;
+    private volatile long replicatedSequence = 0;
+    // Set while a sync with the leader is in flight, so syncs never overlap
+    private final AtomicBoolean syncInProgress = new AtomicBoolean(false);
     private final AtomicBoolean readyToReceiveMessages = new AtomicBoolean(false);
-    private final AtomicBoolean heartbeatStarted = new AtomicBoolean(false);
-
-    public BrokerService(RestTemplate restTemplate, 
-                         KafkaTemplate<String, String> kafkaTemplate,
+    // Heartbeats get their own thread so syncs and flushes on the shared scheduler never delay them
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "broker-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BrokerService(KafkaTemplate<String, String> kafkaTemplate,
                          AdminClient adminClient,
-                         ConsumerFactory<String, String> consumerFactory) {
-        this.restTemplate = restTemplate;
+                         ConsumerFactory<String, String> consumerFactory,
+                         InterNodeClient interNodeClient) {
         this.kafkaTemplate = kafkaTemplate;
         this.adminClient = adminClient;
         this.consumerFactory = consumerFactory;
+        this.interNodeClient = interNodeClient;
     }
 
     @PostConstruct
-    public void init() {
-        // Mark as ready to receive messages first
-        readyToReceiveMessages.set(true);
-        System.out.println("Broker is now ready to receive messages");
-        
-        // Wait 3 seconds before starting heartbeats to ensure full initialization
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.schedule(() -> {
-            System.out.println("Starting broker registration and heartbeat after delay");
-            registerBroker();
-            updateLeaderAndBrokers();
-            heartbeatStarted.set(true);
-            scheduler.shutdown();
-        }, 3, TimeUnit.SECONDS);
+    public void init() throws IOException {
+        replicationLog = new ReplicationLog(replicationLogSize);
+        // Each broker keeps its messages under its own port; a random port has nothing to recover, so use a temp dir
+        Path messageDir;
+        if (port != 0) {
+            messageDir = Path.of(storeDir, String.valueOf(port));
+        } else {
+            messageDir = Files.createTempDirectory("broker-messages");
+            temporaryStoreDir = messageDir;
+        }
+        state = new BrokerState(new MessageStore(messageDir, segmentBytes, segmentMessages, retentionSegments));
+        bootstrapSnapshots = new BootstrapSnapshots(snapshotChunkBytes, snapshotTtlMs, snapshotReuseMs);
+    }
+
+    /**
+     * Registers with the coordinator once the application is up. The broker only
+     * becomes ready to receive messages after it has caught up with the leader.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        System.out.println("Starting broker registration and heartbeat");
+        // Heartbeats start before the broker is ready: they are how it learns who the leader is.
+        // They start once registration has been answered, whether or not it succeeded
+        registerBroker().whenComplete((result, ex) ->
+                heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeat, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS));
+    }
+
+    private void markReady() {
+        if (readyToReceiveMessages.compareAndSet(false, true)) {
+            System.out.println("Broker is now ready to receive messages");
+        }
+    }
+
+    private void markNotReady() {
+        if (readyToReceiveMessages.compareAndSet(true, false)) {
+            System.out.println("Broker is no longer ready to receive messages");
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        heartbeatScheduler.shutdownNow();
+        state.close();
+        if (temporaryStoreDir != null) {
+            // Nothing would ever reopen it, since the next run gets another random port
+            try (Stream<Path> files = Files.walk(temporaryStoreDir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
     }
 
     /**
@@ -104,88 +209,257 @@ public class BrokerService {
         return readyToReceiveMessages.get();
     }
 
-    public boolean isSubscriberAlive(String subscriberUrl) {
+    /**
+     * Pings a subscriber
+     * @return a future completed with true if the subscriber answered, false otherwise
+     */
+    public CompletableFuture<Boolean> isSubscriberAlive(String subscriberUrl) {
         try {
-            restTemplate.getForObject(subscriberUrl + "/api/ping?timestamp=" + logicalClock, String.class);
-            return true;
+            return interNodeClient.get(subscriberUrl, "/api/ping", Map.of(), clock.get(), String.class)
+                    .handle((body, ex) -> ex == null);
         } catch (Exception e) {
-            return false;
+            // e.g. a malformed subscriber URL
+            return CompletableFuture.completedFuture(false);
         }
     }
 
     public Map<String, List<String>> getSubscribersWithTopics() {
         incrementClock();
-        return subscribers;
+        return state.getSubscribers().toMap();
     }
 
-    @Scheduled(fixedRate = 1000)
+    /**
+     * Sends a heartbeat to the coordinator. The reply carries the leader and the
+     * broker list whenever they changed, so there is no separate polling for them.
+     * Runs on the heartbeat thread every broker.heartbeat.interval-ms once the broker has registered.
+     */
     public void sendHeartbeat() {
-        // Only send heartbeats if the broker is ready and heartbeat has been started
-        if (!readyToReceiveMessages.get() || !heartbeatStarted.get()) {
-            return;
-        }
-        
         incrementClock();
-        System.out.println("Sending heart beat: " + new Date());
+        String brokerUrl = "http://localhost:" + port;
         try {
-            String brokerUrl = "http://localhost:" + port;
-            restTemplate.postForObject(coordinatorUrl + "/api/heartbeat?timestamp=" + logicalClock, brokerUrl, String.class);
-            System.out.println("Sent heartbeat from broker at: " + brokerUrl);
+            // Sent asynchronously so a slow coordinator never holds up the heartbeat thread
+            // Readiness tells the coordinator this broker has the leader's state and may be elected
+            Map<String, Object> params = Map.of("knownEpoch", membershipEpoch, "ready", readyToReceiveMessages.get());
+            interNodeClient.post(coordinatorUrl, "/api/heartbeat/sync", params,
+                            brokerUrl, clock.get(), HeartbeatResponse.class)
+                    .thenAccept(this::applyHeartbeatResponse)
+                    .exceptionally(ex -> {
+                        System.err.println("Failed to send heartbeat: " + ex.getMessage());
+                        return null;
+                    });
         } catch (Exception e) {
-            e.printStackTrace();
+            // A task that throws is never run again by the executor
+            System.err.println("Failed to send heartbeat: " + e.getMessage());
         }
     }
 
-    @Scheduled(fixedRate = 3000)
-    public void updateLeaderAndBrokers() {
-        incrementClock();
-        try {
-            this.leader = restTemplate.getForObject(coordinatorUrl + "/api/leader?timestamp=" + logicalClock, String.class);
-            this.brokers = restTemplate.getForObject(coordinatorUrl + "/api/brokers?timestamp=" + logicalClock, List.class);
-            System.out.println("Updated leader: " + leader);
-            System.out.println("Updated brokers: " + brokers);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void applyHeartbeatResponse(HeartbeatResponse response) {
+        if (response == null || !response.isChanged()) {
+            return;
         }
+        String latestLeader = response.getLeader();
+        this.leader = latestLeader == null || latestLeader.isEmpty() ? null : latestLeader;
+        this.brokers = response.getBrokers() == null ? List.of() : List.copyOf(response.getBrokers());
+        this.membershipEpoch = response.getEpoch();
+        System.out.println("Membership epoch " + membershipEpoch + ", leader: " + leader + ", brokers: " + brokers);
     }
 
+    /**
+     * Brings this broker up to date with the leader.
+     * A broker with no replicated state, or whose state the leader can no longer
+     * continue from, first bootstraps from a chunked snapshot; after that only the
+     * changes since the last applied sequence number are fetched. The broker is
+     * marked ready once it has caught up.
+     */
     @Scheduled(fixedRate = 1000)
     public void syncDataWithLeader() {
         incrementClock();
-        if (!("http://localhost:" + port).equals(leader)) {
+        String currentLeader = leader;
+        if (currentLeader == null) {
+            return;
+        }
+        if (("http://localhost:" + port).equals(currentLeader)) {
+            // The leader's own state is the one everyone else catches up with
+            markReady();
+            return;
+        }
+        if (!syncInProgress.compareAndSet(false, true)) {
+            return;
+        }
+
+        CompletableFuture<Void> sync = replicatedLogId == null ? bootstrapFrom(currentLeader) : catchUp(currentLeader);
+        sync.whenComplete((result, ex) -> {
+            if (ex != null) {
+                System.err.println("Failed to sync with leader " + currentLeader + ": " + ex.getMessage());
+            }
+            syncInProgress.set(false);
+        });
+    }
+
+    /**
+     * Applies the leader's changes since the last applied sequence number,
+     * falling back to a snapshot when the leader can't provide them
+     */
+    private CompletableFuture<Void> catchUp(String leaderUrl) {
+        Map<String, Object> params = Map.of("logId", replicatedLogId, "since", replicatedSequence);
+        return interNodeClient.getPreferringBinary(leaderUrl, "/api/changes", params, clock.get(),
+                        StateCodec.MEDIA_TYPE, StateCodec::decodeChangeSet, ChangeSet.class)
+                .thenCompose(changeSet -> {
+                    if (!applyChangeSet(changeSet)) {
+                        replicatedLogId = null;
+                        return bootstrapFrom(leaderUrl);
+                    }
+                    // The change set holds everything up to the leader's current sequence
+                    markReady();
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    /**
+     * Downloads the leader's snapshot chunk by chunk, loads it, then catches up
+     * on the changes made since it was taken. The broker is not ready meanwhile,
+     * and says so in its heartbeats, so the coordinator won't elect it.
+     */
+    private CompletableFuture<Void> bootstrapFrom(String leaderUrl) {
+        markNotReady();
+        SnapshotDownload download = snapshotDownload;
+        if (download == null || !download.getLeaderUrl().equals(leaderUrl)) {
+            download = new SnapshotDownload(leaderUrl);
+            snapshotDownload = download;
+        }
+        SnapshotDownload current = download;
+        return fetchSnapshotChunks(current).thenCompose(ignored -> {
             try {
-                String leaderUrl = leader + "/api/data?timestamp=" + logicalClock;
-                Map<String, Object> leaderData = restTemplate.getForObject(leaderUrl, Map.class);
-                updateInMemoryData(leaderData);
-                System.out.println("Synchronized data with leader broker at: " + leaderUrl);
-            } catch (Exception e) {
-                e.printStackTrace();
+                applySnapshot(StateCodec.decodeSnapshot(current.toByteArray()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Invalid snapshot from " + leaderUrl, e);
+            } finally {
+                snapshotDownload = null;
             }
+            System.out.println("Loaded snapshot from leader " + leaderUrl + " at sequence " + replicatedSequence
+                    + " (" + current.getTotalChunks() + " chunks)");
+            return catchUp(leaderUrl);
+        });
+    }
+
+    private CompletableFuture<Void> fetchSnapshotChunks(SnapshotDownload download) {
+        if (download.isComplete()) {
+            return CompletableFuture.completedFuture(null);
         }
+        return interNodeClient.getBytes(download.getLeaderUrl(), "/api/bootstrap/snapshot", download.nextRequest(), clock.get(),
+                        "application/octet-stream")
+                .thenCompose(response -> {
+                    download.accept(header(response, "X-Snapshot-Id"),
+                            Integer.parseInt(header(response, "X-Snapshot-Chunk")),
+                            Integer.parseInt(header(response, "X-Snapshot-Chunks")),
+                            response.body());
+                    return fetchSnapshotChunks(download);
+                });
     }
 
-    private void updateInMemoryData(Map<String, Object> data) {
-        this.topics = new HashSet<>((List<String>) data.get("topics"));
-        this.messages = (Map<String, List<String>>) data.get("messages");
-        this.subscribers = (Map<String, List<String>>) data.get("subscribers");
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name)
+                .orElseThrow(() -> new IllegalStateException("Snapshot response is missing " + name));
     }
 
-    private void registerBroker() {
+    /**
+     * Returns a chunk of a snapshot of this broker's state for a bootstrapping broker.
+     * Without a snapshot id, or when the requested snapshot has expired, the first
+     * chunk of a recent snapshot is returned instead.
+     */
+    public BootstrapSnapshots.Chunk getSnapshotChunk(String snapshotId, int chunk) throws Exception {
         incrementClock();
-        if (port!=0) {
-            try {
-                String brokerUrl = "http://localhost:" + port;
-                restTemplate.postForObject(coordinatorUrl + "/api/register?timestamp=" + logicalClock, brokerUrl, String.class);
-                System.out.println("Registered broker at: " + brokerUrl);
-            } catch (Exception e) {
-                e.printStackTrace();
+        if (snapshotId != null) {
+            BootstrapSnapshots.Chunk requested = bootstrapSnapshots.chunk(snapshotId, chunk);
+            if (requested != null) {
+                return requested;
             }
         }
+        String preparedId = bootstrapSnapshots.prepare(() -> StateCodec.encode(getAllData(), true));
+        return bootstrapSnapshots.chunk(preparedId, 0);
+    }
+
+    /**
+     * Applies the changes fetched from the leader
+     * @return false if the leader asked for a full snapshot instead
+     */
+    private boolean applyChangeSet(ChangeSet changeSet) {
+        if (changeSet == null || changeSet.isSnapshotRequired()) {
+            return false;
+        }
+        for (StateChange change : changeSet.getChanges()) {
+            if (!applyChange(change)) {
+                System.out.println("Missing messages before sequence " + change.getSequence() + ", fetching a full snapshot");
+                return false;
+            }
+            replicatedSequence = change.getSequence();
+        }
+        if (!changeSet.getChanges().isEmpty()) {
+            System.out.println("Applied " + changeSet.getChanges().size() + " changes from leader, now at sequence " + replicatedSequence);
+        }
+        return true;
+    }
+
+    private void applySnapshot(StateSnapshot snapshot) {
+        state.replaceAll(snapshot.getTopics(), snapshot.getMessages(), snapshot.getMessageStartOffsets(),
+                snapshot.getSubscribers());
+        this.replicatedLogId = snapshot.getLogId();
+        this.replicatedSequence = snapshot.getSequence();
+    }
+
+    /**
+     * Applies a change received from the leader's replication log
+     * @return false if the change cannot be applied without a full snapshot
+     */
+    private boolean applyChange(StateChange change) {
+        switch (change.getType()) {
+            case ADD_TOPIC -> state.addTopic(change.getTopic());
+            case SET_TOPICS -> state.setTopics(change.getValues());
+            case ADD_SUBSCRIBER -> state.getSubscribers().add(change.getTopic(), change.getValue());
+            case REMOVE_SUBSCRIBER -> state.getSubscribers().remove(change.getTopic(), change.getValue());
+            case ADD_MESSAGE -> {
+                return state.applyMessage(change.getTopic(), change.getOffset(), change.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the changes made on this broker after the given sequence number
+     */
+    public ChangeSet getChangesSince(String logId, long since) {
+        incrementClock();
+        return replicationLog.changesSince(logId, since);
+    }
+
+    /**
+     * @return a future completed once the coordinator has answered or the request failed
+     */
+    private CompletableFuture<Void> registerBroker() {
+        incrementClock();
+        if (port == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String brokerUrl = "http://localhost:" + port;
+        try {
+            return interNodeClient.post(coordinatorUrl, "/api/register", brokerUrl, clock.get())
+                    .handle((body, ex) -> {
+                        if (ex == null) {
+                            System.out.println("Registered broker at: " + brokerUrl);
+                        } else {
+                            System.err.println("Failed to register broker: " + ex.getMessage());
+                        }
+                        return null;
+                    });
+        } catch (Exception e) {
+            System.err.println("Failed to register broker: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     public boolean isSubscriberSubscribedToTopic(String subscriberUrl, String topic) {
         incrementClock();
-        return subscribers.containsKey(topic) && subscribers.get(topic).contains(subscriberUrl);
+        return state.getSubscribers().isSubscribed(subscriberUrl, topic);
     }
 
     public List<String> getBrokers() {
@@ -200,26 +474,56 @@ public class BrokerService {
 
     public Set<String> getTopics() {
         incrementClock();
-        return topics;
+        return state.getTopics();
     }
 
     public Map<String, List<String>> getMessages() {
         incrementClock();
-        return messages;
+        return state.getMessages();
     }
 
     public List<String> getMessages(String topic) {
         incrementClock();
-        return messages.getOrDefault(topic, new ArrayList<>());
+        return state.getMessages(topic);
     }
 
-    public void addTopic(String topic) {
+    /**
+     * Returns the messages of a topic starting at the given offset, plus the offset
+     * to pass on the next call, so polling clients only receive new messages
+     * @param topic the topic to read
+     * @param since offset of the first message to return
+     */
+    public Map<String, Object> getMessagesSince(String topic, long since) {
+        incrementClock();
+        TopicLog log = state.getMessageLog(topic);
+        Map<String, Object> delta = new HashMap<>();
+        if (log == null) {
+            delta.put("messages", List.of());
+            delta.put("nextOffset", 0L);
+            return delta;
+        }
+        // Offsets are positions in the topic's log; ones dropped by retention are skipped
+        long start = Math.max(since, log.startOffset());
+        List<String> messages = log.read(start);
+        delta.put("messages", messages);
+        delta.put("nextOffset", start + messages.size());
+        return delta;
+    }
+
+    /**
+     * Creates a Kafka topic and adds it to the replicated state
+     * @param partitions        number of partitions, or null for broker.topic.partitions
+     * @param replicationFactor replicas per partition, or null for broker.topic.replication-factor
+     */
+    public void addTopic(String topic, Integer partitions, Short replicationFactor) {
         incrementClock();
         try {
             // Create a new Kafka topic
-            NewTopic newTopic = new NewTopic(topic, 1, (short) 1);
+            NewTopic newTopic = new NewTopic(topic, partitions != null ? partitions : defaultPartitions,
+                    replicationFactor != null ? replicationFactor : defaultReplicationFactor);
             adminClient.createTopics(Collections.singleton(newTopic));
-            topics.add(topic);
+            state.addTopic(topic);
+            replicationLog.append(new StateChange(StateChange.Type.ADD_TOPIC, topic, null, null));
             System.out.println("Created Kafka topic: " + topic);
         } catch (Exception e) {
             System.out.println("Error creating Kafka topic: " + e.getMessage());
@@ -230,20 +534,42 @@ public class BrokerService {
         incrementClock();
         try {
             // Send message to Kafka topic
-            kafkaTemplate.send(topic, message);
+            // Keyed by voter so each voter's votes stay in order on one partition
+            kafkaTemplate.send(topic, keyByVoter ? VoteKey.of(message) : null, message).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    System.out.println("Error sending message to Kafka: " + ex.getMessage());
+                } else if (("http://localhost:" + port).equals(leader)) {
+                    // Only the leader stores messages directly; followers get them through replication
+                    storeMessage(topic, message);
+                }
+            });
             System.out.println("Message sent to Kafka topic " + topic + ": " + message);
         } catch (Exception e) {
             System.out.println("Error sending message to Kafka: " + e.getMessage());
         }
     }
 
+    /**
+     * Appends a message to the local log and replicates it with its offset.
+     * Synchronized so replication order matches log order.
+     */
+    private synchronized void storeMessage(String topic, String message) {
+        long offset = state.appendMessage(topic, message);
+        StateChange change = new StateChange(StateChange.Type.ADD_MESSAGE, topic, message, null);
+        change.setOffset(offset);
+        replicationLog.append(change);
+    }
+
+    @Scheduled(fixedRateString = "${broker.store.flush-interval-ms:1000}")
+    public void flushMessages() {
+        if (state != null) {
+            state.flushMessages();
+        }
+    }
+
     public List<String> getSubscribers() {
         incrementClock();
-        List<String> allSubscribers = new ArrayList<>();
-        for (List<String> topicSubscribers : subscribers.values()) {
-            allSubscribers.addAll(topicSubscribers);
-        }
-        return allSubscribers;
+        return new ArrayList<>(state.getSubscribers().getAllSubscribers());
     }
 
     public String getCoordinatorUrl() {
@@ -265,32 +591,42 @@ public class BrokerService {
 
     public void addSubscriber(String topic, String subscriberUrl) {
         incrementClock();
-        subscribers.computeIfAbsent(topic, k -> new ArrayList<>()).add(subscriberUrl);
+        // Duplicate subscriptions are ignored, so only real changes are replicated
+        if (state.getSubscribers().add(topic, subscriberUrl)) {
+            replicationLog.append(new StateChange(StateChange.Type.ADD_SUBSCRIBER, topic, subscriberUrl, null));
+        }
     }
 
     public void removeSubscriber(String topic, String subscriberUrl) {
         incrementClock();
-        List<String> topicSubscribers = subscribers.get(topic);
-        if (topicSubscribers != null) {
-            topicSubscribers.remove(subscriberUrl);
-            if (topicSubscribers.isEmpty()) {
-                subscribers.remove(topic);
-            }
+        if (state.getSubscribers().remove(topic, subscriberUrl)) {
+            replicationLog.append(new StateChange(StateChange.Type.REMOVE_SUBSCRIBER, topic, subscriberUrl, null));
         }
     }
 
     public List<String> getSubscribers(String topic) {
         incrementClock();
-        return subscribers.getOrDefault(topic, new ArrayList<>());
+        return new ArrayList<>(state.getSubscribers().getSubscribers(topic));
     }
 
-    public Map<String, Object> getAllData() {
+    /**
+     * Returns the topics a subscriber is subscribed to
+     */
+    public Set<String> getTopicsForSubscriber(String subscriberUrl) {
+        incrementClock();
+        return state.getSubscribers().getTopics(subscriberUrl);
+    }
+
+    public StateSnapshot getAllData() {
         incrementClock();
-        Map<String, Object> data = new HashMap<>();
-        data.put("topics", new ArrayList<>(topics));
-        data.put("messages", new HashMap<>(messages));
-        data.put("subscribers", new HashMap<>(subscribers));
-        return data;
+        // Read the sequence before the state: replaying changes after it is harmless
+        // even if some of them are already reflected in the copied state
+        String logId = replicationLog.getLogId();
+        long sequence = replicationLog.getSequence();
+        StateSnapshot snapshot = state.snapshot();
+        snapshot.setLogId(logId);
+        snapshot.setSequence(sequence);
+        return snapshot;
     }
 
     @Scheduled(fixedRate = 5000)
@@ -301,22 +637,24 @@ public class BrokerService {
             Set<String> kafkaTopics = listTopicsResult.names().get();
             // Remove internal Kafka topics
             kafkaTopics.removeIf(topic -> topic.startsWith("__"));
-            this.topics = new HashSet<>(kafkaTopics);
-            System.out.println("Synced topics with Kafka: " + topics);
+            if (state.setTopics(kafkaTopics)) {
+                replicationLog.append(new StateChange(StateChange.Type.SET_TOPICS, null, null, new ArrayList<>(kafkaTopics)));
+            }
+            System.out.println("Synced topics with Kafka: " + state.getTopics());
         } catch (Exception e) {
             System.out.println("Error syncing topics with Kafka: " + e.getMessage());
         }
     }
 
-    private synchronized void incrementClock() {
-        logicalClock++;
+    private void incrementClock() {
+        clock.tick();
     }
 
-    public synchronized void updateClock(long receivedTimestamp) {
-        logicalClock = Math.max(logicalClock, receivedTimestamp) + 1;
+    public void updateClock(long receivedTimestamp) {
+        clock.update(receivedTimestamp);
     }
 
-    public synchronized long getLogicalClock() {
-        return logicalClock;
+    public long getLogicalClock() {
+        return clock.get();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.project.broker.service;
+
+import com.project.broker.model.StateSnapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Topics, messages and subscribers held by a broker, safe for concurrent use.
+ *
+ * Messages are kept on disk in a MessageStore; readers get views that are fixed
+ * at the time of the call, so they can serialize them while writers keep going.
+ * Subscriptions are kept in a SubscriberRegistry.
+ */
+public class BrokerState {
+
+    private volatile Set<String> topics = Set.of();
+    private final MessageStore messages;
+    private final SubscriberRegistry subscribers = new SubscriberRegistry();
+
+    public BrokerState(MessageStore messages) {
+        this.messages = messages;
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    public synchronized void addTopic(String topic) {
+        if (!topics.contains(topic)) {
+            Set<String> updated = new HashSet<>(topics);
+            updated.add(topic);
+            topics = Set.copyOf(updated);
+        }
+    }
+
+    /**
+     * Replaces the topic set
+     * @return true if the topics changed
+     */
+    public synchronized boolean setTopics(Collection<String> newTopics) {
+        Set<String> updated = Set.copyOf(newTopics);
+        if (updated.equals(topics)) {
+            return false;
+        }
+        topics = updated;
+        return true;
+    }
+
+    public List<String> getMessages(String topic) {
+        TopicLog log = messages.get(topic);
+        return log == null ? List.of() : log.read(0);
+    }
+
+    public Map<String, List<String>> getMessages() {
+        return messages.views();
+    }
+
+    /**
+     * Returns the topic's log, or null if it has no messages yet
+     */
+    public TopicLog getMessageLog(String topic) {
+        return messages.get(topic);
+    }
+
+    /**
+     * Appends a message to the topic's log
+     * @return the offset it was stored at
+     */
+    public long appendMessage(String topic, String message) {
+        return messages.getOrCreate(topic).append(message);
+    }
+
+    /**
+     * Applies a message replicated from the leader, which stored it at offset
+     * @return false if messages before it are missing, so the state needs a full snapshot
+     */
+    public boolean applyMessage(String topic, long offset, String message) {
+        TopicLog log = messages.getOrCreate(topic);
+        synchronized (log) {
+            long end = log.endOffset();
+            if (offset < end) {
+                // Already have it, e.g. from a snapshot taken after the change was logged
+                return true;
+            }
+            if (offset > end) {
+                return false;
+            }
+            log.append(message);
+            return true;
+        }
+    }
+
+    public void flushMessages() {
+        messages.flush();
+    }
+
+    public void close() throws IOException {
+        messages.close();
+    }
+
+    public SubscriberRegistry getSubscribers() {
+        return subscribers;
+    }
+
+    /**
+     * Replaces the whole state, e.g. with a snapshot received from the leader
+     */
+    public synchronized void replaceAll(Collection<String> newTopics,
+                                        Map<String, List<String>> newMessages,
+                                        Map<String, Long> newStartOffsets,
+                                        Map<String, List<String>> newSubscribers) {
+        topics = Set.copyOf(newTopics);
+        if (newMessages != null) {
+            newMessages.forEach((topic, values) ->
+                    replaceMessages(topic, newStartOffsets == null ? 0 : newStartOffsets.getOrDefault(topic, 0L), values));
+        }
+        subscribers.replaceAll(newSubscribers);
+    }
+
+    /**
+     * Makes a topic's log hold exactly the given messages starting at startOffset.
+     * When the local log already holds a prefix of them, as after a restart, only
+     * the missing messages are appended.
+     */
+    private void replaceMessages(String topic, long startOffset, List<String> values) {
+        TopicLog log = messages.getOrCreate(topic);
+        synchronized (log) {
+            long localCount = log.endOffset() - startOffset;
+            boolean isPrefix = log.startOffset() == startOffset && localCount <= values.size();
+            for (int i = 0; isPrefix && i < localCount; i++) {
+                isPrefix = values.get(i).equals(log.get(startOffset + i));
+            }
+            if (!isPrefix) {
+                log.reset(startOffset);
+                localCount = 0;
+            }
+            for (int i = (int) localCount; i < values.size(); i++) {
+                log.append(values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the whole state for serialization.
+     * Messages are lazy views over the topic logs, so only the subscriber index
+     * is actually copied.
+     */
+    public StateSnapshot snapshot() {
+        StateSnapshot snapshot = new StateSnapshot();
+        snapshot.setTopics(new ArrayList<>(topics));
+        snapshot.setMessages(messages.views());
+        snapshot.setMessageStartOffsets(messages.startOffsets());
+        snapshot.setSubscribers(subscribers.toMap());
+        return snapshot;
+    }
+}
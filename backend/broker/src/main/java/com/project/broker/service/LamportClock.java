@@ -0,0 +1,32 @@
+package com.project.broker.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lamport logical clock backed by a single AtomicLong.
+ * Updates are compare-and-set loops, so request threads never block on a monitor.
+ */
+public class LamportClock {
+
+    private final AtomicLong time = new AtomicLong();
+
+    /**
+     * Advances the clock for a local event
+     * @return the new clock value
+     */
+    public long tick() {
+        return time.incrementAndGet();
+    }
+
+    /**
+     * Merges a timestamp received from another node: max(local, received) + 1
+     * @return the new clock value
+     */
+    public long update(long receivedTimestamp) {
+        return time.accumulateAndGet(receivedTimestamp, (local, received) -> Math.max(local, received) + 1);
+    }
+
+    public long get() {
+        return time.get();
+    }
+}
@@ -0,0 +1,93 @@
+package com.project.broker.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The broker's messages, one TopicLog per topic under a common directory.
+ * Logs already on disk are reopened on startup, so a restarted broker keeps its messages.
+ */
+public class MessageStore implements Closeable {
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int segmentMessages;
+    private final int retentionSegments;
+    private final Map<String, TopicLog> logs = new ConcurrentHashMap<>();
+
+    public MessageStore(Path dir, int segmentBytes, int segmentMessages, int retentionSegments) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.segmentMessages = segmentMessages;
+        this.retentionSegments = retentionSegments;
+        Files.createDirectories(dir);
+        try (Stream<Path> topicDirs = Files.list(dir)) {
+            for (Path topicDir : topicDirs.filter(Files::isDirectory).toList()) {
+                String topic = URLDecoder.decode(topicDir.getFileName().toString(), StandardCharsets.UTF_8);
+                logs.put(topic, new TopicLog(topicDir, segmentBytes, segmentMessages, retentionSegments));
+            }
+        }
+    }
+
+    /**
+     * Returns the topic's log, or null if nothing was ever stored for it
+     */
+    public TopicLog get(String topic) {
+        return logs.get(topic);
+    }
+
+    /**
+     * Returns the topic's log, creating it if needed
+     */
+    public TopicLog getOrCreate(String topic) {
+        return logs.computeIfAbsent(topic, t -> {
+            try {
+                // Topic names may contain characters that are not valid in file names
+                return new TopicLog(dir.resolve(URLEncoder.encode(t, StandardCharsets.UTF_8)),
+                        segmentBytes, segmentMessages, retentionSegments);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open log for topic " + t, e);
+            }
+        });
+    }
+
+    /**
+     * Returns every topic's retained messages, read lazily from the logs
+     */
+    public Map<String, List<String>> views() {
+        Map<String, List<String>> views = new HashMap<>();
+        logs.forEach((topic, log) -> views.put(topic, log.read(0)));
+        return views;
+    }
+
+    /**
+     * Returns the offset of the oldest retained message of each topic
+     */
+    public Map<String, Long> startOffsets() {
+        Map<String, Long> offsets = new HashMap<>();
+        logs.forEach((topic, log) -> offsets.put(topic, log.startOffset()));
+        return offsets;
+    }
+
+    public void flush() {
+        logs.values().forEach(TopicLog::flush);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TopicLog log : logs.values()) {
+            log.close();
+        }
+    }
+}
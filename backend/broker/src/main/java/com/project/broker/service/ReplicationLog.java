@@ -0,0 +1,85 @@
+package com.project.broker.service;
+
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bounded in-memory log of the state changes made on this broker.
+ *
+ * Every change gets the next sequence number. Followers remember the last
+ * sequence they applied and ask only for the changes after it. The log is
+ * identified by a random id so a follower can tell when it is talking to a
+ * different log (for example after a leader change or a restart) and must
+ * start over from a snapshot.
+ */
+public class ReplicationLog {
+
+    private final String logId = UUID.randomUUID().toString();
+    private final int capacity;
+    private final Deque<StateChange> changes = new ArrayDeque<>();
+    private long sequence = 0;
+
+    public ReplicationLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Records a change that has already been applied to the local state
+     * @return the sequence number assigned to the change
+     */
+    public synchronized long append(StateChange change) {
+        change.setSequence(++sequence);
+        changes.addLast(change);
+        if (changes.size() > capacity) {
+            changes.removeFirst();
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the changes after the given sequence number of the given log
+     * @param followerLogId the log the follower has been applying
+     * @param since         the last sequence number the follower applied
+     */
+    public synchronized ChangeSet changesSince(String followerLogId, long since) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setLogId(logId);
+        changeSet.setSequence(sequence);
+
+        long oldestAvailable = changes.isEmpty() ? sequence + 1 : changes.peekFirst().getSequence();
+        if (!logId.equals(followerLogId) || since > sequence || since + 1 < oldestAvailable) {
+            changeSet.setSnapshotRequired(true);
+            return changeSet;
+        }
+
+        List<StateChange> pending = new ArrayList<>();
+        // Walk back from the newest entry, since followers are usually close to the head
+        Iterator<StateChange> iterator = changes.descendingIterator();
+        while (iterator.hasNext()) {
+            StateChange change = iterator.next();
+            if (change.getSequence() <= since) {
+                break;
+            }
+            pending.add(change);
+        }
+        Collections.reverse(pending);
+        changeSet.setChanges(pending);
+        return changeSet;
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.broker.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+/**
+ * Progress of a follower downloading a bootstrap snapshot from the leader.
+ * Kept between sync attempts, so an interrupted download resumes at the next chunk.
+ */
+public class SnapshotDownload {
+
+    private final String leaderUrl;
+    private String snapshotId;
+    private int totalChunks = -1;
+    private int nextChunk = 0;
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    public SnapshotDownload(String leaderUrl) {
+        this.leaderUrl = leaderUrl;
+    }
+
+    public String getLeaderUrl() {
+        return leaderUrl;
+    }
+
+    /**
+     * Query parameters for the next chunk request
+     */
+    public Map<String, Object> nextRequest() {
+        return snapshotId == null
+                ? Map.of("chunk", 0)
+                : Map.of("snapshotId", snapshotId, "chunk", nextChunk);
+    }
+
+    /**
+     * Adds a received chunk. If the leader answered with a different snapshot,
+     * because the one being downloaded expired, the download starts over with it.
+     */
+    public synchronized void accept(String chunkSnapshotId, int chunk, int chunkCount, byte[] bytes) {
+        if (!chunkSnapshotId.equals(snapshotId)) {
+            snapshotId = chunkSnapshotId;
+            totalChunks = chunkCount;
+            nextChunk = 0;
+            data.reset();
+        }
+        if (chunk != nextChunk) {
+            throw new IllegalStateException("Expected snapshot chunk " + nextChunk + " but got " + chunk);
+        }
+        data.writeBytes(bytes);
+        nextChunk++;
+    }
+
+    public synchronized boolean isComplete() {
+        return totalChunks >= 0 && nextChunk >= totalChunks;
+    }
+
+    public synchronized int getReceivedChunks() {
+        return nextChunk;
+    }
+
+    public synchronized int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public synchronized byte[] toByteArray() {
+        return data.toByteArray();
+    }
+}
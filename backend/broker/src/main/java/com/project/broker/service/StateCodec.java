@@ -0,0 +1,398 @@
+package com.project.broker.service;
+
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateChange;
+import com.project.broker.model.StateSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact, versioned binary encoding of the state brokers exchange: full
+ * snapshots and replication change sets.
+ *
+ * Every payload starts with a magic number, a format version and a flags byte;
+ * when the compressed flag is set the rest is deflated. The body begins with a
+ * dictionary of the topic names and subscriber URLs it mentions, which are then
+ * referred to by index, so each is written once however often it appears.
+ * Counts, indexes and offsets are varints; messages are length-prefixed UTF-8.
+ */
+public final class StateCodec {
+
+    /**
+     * Content type followers ask for to get this encoding instead of JSON
+     */
+    public static final String MEDIA_TYPE = "application/x-broker-state";
+
+    private static final int MAGIC = 0x42535431; // "BST1"
+    private static final int VERSION = 2;
+    private static final int FLAG_COMPRESSED = 1;
+    private static final byte KIND_SNAPSHOT = 1;
+    private static final byte KIND_CHANGE_SET = 2;
+    // magic (4) + version + flags + kind
+    private static final int HEADER_SIZE = 7;
+
+    private StateCodec() {
+    }
+
+    /**
+     * @param compress whether to deflate the body
+     */
+    public static byte[] encode(StateSnapshot snapshot, boolean compress) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        snapshot.getTopics().forEach(dictionary::add);
+        snapshot.getMessages().keySet().forEach(dictionary::add);
+        snapshot.getSubscribers().forEach((topic, subscribers) -> {
+            dictionary.add(topic);
+            subscribers.forEach(dictionary::add);
+        });
+
+        return write(KIND_SNAPSHOT, compress, out -> {
+            dictionary.write(out);
+            writeNullableString(out, snapshot.getLogId());
+            writeVarLong(out, snapshot.getSequence());
+            writeRefs(out, dictionary, snapshot.getTopics());
+
+            writeVarLong(out, snapshot.getMessages().size());
+            for (Map.Entry<String, List<String>> entry : snapshot.getMessages().entrySet()) {
+                writeVarLong(out, dictionary.ref(entry.getKey()));
+                writeVarLong(out, snapshot.getMessageStartOffsets().getOrDefault(entry.getKey(), 0L));
+                List<String> messages = entry.getValue();
+                writeVarLong(out, messages.size());
+                for (String message : messages) {
+                    writeString(out, message);
+                }
+            }
+
+            writeVarLong(out, snapshot.getSubscribers().size());
+            for (Map.Entry<String, List<String>> entry : snapshot.getSubscribers().entrySet()) {
+                writeVarLong(out, dictionary.ref(entry.getKey()));
+                writeRefs(out, dictionary, entry.getValue());
+            }
+        });
+    }
+
+    public static StateSnapshot decodeSnapshot(byte[] data) throws IOException {
+        try (DataInputStream in = read(data, KIND_SNAPSHOT)) {
+            List<String> dictionary = readDictionary(in);
+            StateSnapshot snapshot = new StateSnapshot();
+            snapshot.setLogId(readNullableString(in));
+            snapshot.setSequence(readVarLong(in));
+            snapshot.setTopics(readRefs(in, dictionary));
+
+            int messageTopics = readCount(in);
+            Map<String, List<String>> messages = new HashMap<>();
+            Map<String, Long> startOffsets = new HashMap<>();
+            for (int i = 0; i < messageTopics; i++) {
+                String topic = entry(dictionary, readCount(in));
+                startOffsets.put(topic, readVarLong(in));
+                int count = readCount(in);
+                List<String> topicMessages = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    topicMessages.add(readString(in));
+                }
+                messages.put(topic, topicMessages);
+            }
+            snapshot.setMessages(messages);
+            snapshot.setMessageStartOffsets(startOffsets);
+
+            int subscriberCount = readCount(in);
+            Map<String, List<String>> subscribers = new HashMap<>();
+            for (int i = 0; i < subscriberCount; i++) {
+                subscribers.put(entry(dictionary, readCount(in)), readRefs(in, dictionary));
+            }
+            snapshot.setSubscribers(subscribers);
+            return snapshot;
+        }
+    }
+
+    /**
+     * @param compress whether to deflate the body
+     */
+    public static byte[] encode(ChangeSet changeSet, boolean compress) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        for (StateChange change : changeSet.getChanges()) {
+            dictionary.add(change.getTopic());
+            if (change.getType() != StateChange.Type.ADD_MESSAGE) {
+                dictionary.add(change.getValue());
+            }
+            if (change.getValues() != null) {
+                change.getValues().forEach(dictionary::add);
+            }
+        }
+
+        return write(KIND_CHANGE_SET, compress, out -> {
+            dictionary.write(out);
+            writeNullableString(out, changeSet.getLogId());
+            writeVarLong(out, changeSet.getSequence());
+            out.writeBoolean(changeSet.isSnapshotRequired());
+
+            writeVarLong(out, changeSet.getChanges().size());
+            for (StateChange change : changeSet.getChanges()) {
+                writeVarLong(out, change.getSequence());
+                out.writeByte(change.getType().ordinal());
+                writeVarLong(out, dictionary.nullableRef(change.getTopic()));
+                if (change.getType() == StateChange.Type.ADD_MESSAGE) {
+                    writeNullableString(out, change.getValue());
+                    writeVarLong(out, change.getOffset());
+                } else {
+                    writeVarLong(out, dictionary.nullableRef(change.getValue()));
+                }
+                if (change.getValues() == null) {
+                    writeVarLong(out, 0);
+                } else {
+                    writeVarLong(out, change.getValues().size() + 1L);
+                    for (String value : change.getValues()) {
+                        writeVarLong(out, dictionary.ref(value));
+                    }
+                }
+            }
+        });
+    }
+
+    public static ChangeSet decodeChangeSet(byte[] data) throws IOException {
+        try (DataInputStream in = read(data, KIND_CHANGE_SET)) {
+            List<String> dictionary = readDictionary(in);
+            ChangeSet changeSet = new ChangeSet();
+            changeSet.setLogId(readNullableString(in));
+            changeSet.setSequence(readVarLong(in));
+            changeSet.setSnapshotRequired(in.readBoolean());
+
+            int count = readCount(in);
+            List<StateChange> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                StateChange change = new StateChange();
+                change.setSequence(readVarLong(in));
+                change.setType(readType(in));
+                change.setTopic(nullableEntry(dictionary, readCount(in)));
+                if (change.getType() == StateChange.Type.ADD_MESSAGE) {
+                    change.setValue(readNullableString(in));
+                    change.setOffset(readVarLong(in));
+                } else {
+                    change.setValue(nullableEntry(dictionary, readCount(in)));
+                }
+                int values = readCount(in);
+                if (values > 0) {
+                    List<String> list = new ArrayList<>(values - 1);
+                    for (int j = 0; j < values - 1; j++) {
+                        list.add(entry(dictionary, readCount(in)));
+                    }
+                    change.setValues(list);
+                }
+                changes.add(change);
+            }
+            changeSet.setChanges(changes);
+            return changeSet;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(byte kind, boolean compress, BodyWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(0);
+            out.writeByte(kind);
+            body.write(out);
+        }
+        return compress ? compress(bytes.toByteArray()) : bytes.toByteArray();
+    }
+
+    /**
+     * Deflates the body of an uncompressed payload and sets its compressed flag
+     */
+    public static byte[] compress(byte[] payload) throws IOException {
+        if ((payload[5] & FLAG_COMPRESSED) != 0) {
+            return payload;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 2);
+        bytes.write(payload, 0, HEADER_SIZE);
+        // Favour speed: the leader does this for every follower request
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater, 64 * 1024)) {
+            out.write(payload, HEADER_SIZE, payload.length - HEADER_SIZE);
+        } finally {
+            deflater.end();
+        }
+        byte[] compressed = bytes.toByteArray();
+        compressed[5] |= FLAG_COMPRESSED;
+        return compressed;
+    }
+
+    private static DataInputStream read(byte[] data, byte expectedKind) throws IOException {
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < HEADER_SIZE || header.readInt() != MAGIC) {
+            throw new IOException("Not a broker state payload");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported broker state format version " + version);
+        }
+        int flags = header.readUnsignedByte();
+        if (header.readByte() != expectedKind) {
+            throw new IOException("Unexpected broker state payload kind");
+        }
+        InputStream body = new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            body = new InflaterInputStream(body);
+        }
+        return new DataInputStream(body);
+    }
+
+    /**
+     * Strings interned for one payload, numbered in order of first use
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new LinkedHashMap<>();
+
+        void add(String value) {
+            if (value != null) {
+                ids.putIfAbsent(value, ids.size());
+            }
+        }
+
+        int ref(String value) {
+            return ids.get(value);
+        }
+
+        /**
+         * Index + 1, with 0 standing for null
+         */
+        int nullableRef(String value) {
+            return value == null ? 0 : ids.get(value) + 1;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeVarLong(out, ids.size());
+            for (String value : ids.keySet()) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<String> readDictionary(DataInputStream in) throws IOException {
+        int size = readCount(in);
+        List<String> dictionary = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dictionary.add(readString(in));
+        }
+        return dictionary;
+    }
+
+    private static String entry(List<String> dictionary, int ref) throws IOException {
+        if (ref >= dictionary.size()) {
+            throw new IOException("Dictionary reference out of range: " + ref);
+        }
+        return dictionary.get(ref);
+    }
+
+    private static String nullableEntry(List<String> dictionary, int ref) throws IOException {
+        return ref == 0 ? null : entry(dictionary, ref - 1);
+    }
+
+    private static StateChange.Type readType(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        StateChange.Type[] types = StateChange.Type.values();
+        if (ordinal >= types.length) {
+            throw new IOException("Unknown state change type " + ordinal);
+        }
+        return types[ordinal];
+    }
+
+    private static void writeRefs(DataOutputStream out, Dictionary dictionary, List<String> values) throws IOException {
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            writeVarLong(out, dictionary.ref(value));
+        }
+    }
+
+    private static List<String> readRefs(DataInputStream in, List<String> dictionary) throws IOException {
+        int count = readCount(in);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(entry(dictionary, readCount(in)));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] encoded = new byte[readCount(in)];
+        in.readFully(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Length + 1, with 0 standing for null
+     */
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, encoded.length + 1L);
+        out.write(encoded);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        int length = readCount(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length - 1];
+        in.readFully(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Count out of range: " + value);
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.broker.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Topic subscriptions indexed in both directions: topic to subscribers and
+ * subscriber to topics. Membership checks and reverse lookups are O(1), and a
+ * subscriber is recorded at most once per topic.
+ *
+ * Both indexes are updated while holding the topic's entry in the forward index,
+ * so they always agree for any one topic.
+ */
+public class SubscriberRegistry {
+
+    private volatile Indexes indexes = new Indexes();
+
+    /**
+     * @return true if the subscriber was not already subscribed to the topic
+     */
+    public boolean add(String topic, String subscriberUrl) {
+        Indexes current = indexes;
+        boolean[] added = new boolean[1];
+        current.subscribersByTopic.compute(topic, (k, subscribers) -> {
+            Set<String> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            added[0] = updated.add(subscriberUrl);
+            if (added[0]) {
+                // Added inside compute, as remove() can drop an emptied set between a lookup and the add
+                current.topicsBySubscriber.compute(subscriberUrl, (s, topics) -> {
+                    Set<String> updatedTopics = topics != null ? topics : ConcurrentHashMap.newKeySet();
+                    updatedTopics.add(topic);
+                    return updatedTopics;
+                });
+            }
+            return updated;
+        });
+        return added[0];
+    }
+
+    /**
+     * @return true if the subscriber was subscribed to the topic
+     */
+    public boolean remove(String topic, String subscriberUrl) {
+        Indexes current = indexes;
+        boolean[] removed = new boolean[1];
+        current.subscribersByTopic.computeIfPresent(topic, (k, subscribers) -> {
+            removed[0] = subscribers.remove(subscriberUrl);
+            if (removed[0]) {
+                current.topicsBySubscriber.computeIfPresent(subscriberUrl, (s, topics) -> {
+                    topics.remove(topic);
+                    return topics.isEmpty() ? null : topics;
+                });
+            }
+            // Returning null drops the topic once its last subscriber leaves
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        return removed[0];
+    }
+
+    public boolean isSubscribed(String subscriberUrl, String topic) {
+        Set<String> subscribers = indexes.subscribersByTopic.get(topic);
+        return subscribers != null && subscribers.contains(subscriberUrl);
+    }
+
+    public Set<String> getSubscribers(String topic) {
+        Set<String> subscribers = indexes.subscribersByTopic.get(topic);
+        return subscribers == null ? Set.of() : Collections.unmodifiableSet(subscribers);
+    }
+
+    public Set<String> getTopics(String subscriberUrl) {
+        Set<String> topics = indexes.topicsBySubscriber.get(subscriberUrl);
+        return topics == null ? Set.of() : Collections.unmodifiableSet(topics);
+    }
+
+    public Set<String> getAllSubscribers() {
+        return Collections.unmodifiableSet(indexes.topicsBySubscriber.keySet());
+    }
+
+    /**
+     * Returns a copy of the topic to subscribers index in the list form used by the API
+     */
+    public Map<String, List<String>> toMap() {
+        Map<String, List<String>> copy = new HashMap<>();
+        indexes.subscribersByTopic.forEach((topic, subscribers) -> copy.put(topic, new ArrayList<>(subscribers)));
+        return copy;
+    }
+
+    /**
+     * Replaces all subscriptions, e.g. with a snapshot received from the leader
+     */
+    public void replaceAll(Map<String, List<String>> subscriptions) {
+        Indexes rebuilt = new Indexes();
+        if (subscriptions != null) {
+            subscriptions.forEach((topic, subscribers) -> {
+                for (String subscriberUrl : subscribers) {
+                    rebuilt.subscribersByTopic.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(subscriberUrl);
+                    rebuilt.topicsBySubscriber.computeIfAbsent(subscriberUrl, k -> ConcurrentHashMap.newKeySet()).add(topic);
+                }
+            });
+        }
+        indexes = rebuilt;
+    }
+
+    private static final class Indexes {
+        private final Map<String, Set<String>> subscribersByTopic = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> topicsBySubscriber = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,350 @@
+package com.project.broker.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only on-disk log of one topic's messages, split into memory-mapped segments.
+ *
+ * Each segment is a pair of files named after the offset of its first message:
+ * {@code <base>.log} holds the records and {@code <base>.index} the position of
+ * each record, so any offset is read with one lookup. Records are a 4-byte header
+ * (length + 1, so unwritten space reads as 0), a CRC32C of the message and the
+ * UTF-8 message. The header is written last, so a record is only visible once
+ * complete. The page cache may write pages back in any order, though, so after a
+ * crash a header can be on disk without its message; reopening a log therefore
+ * scans each segment up to the first empty header or checksum mismatch and
+ * discards everything from there on.
+ *
+ * Messages are read straight from the mapped files, so old messages live in the
+ * page cache instead of the heap. Appends are serialized; reads never lock.
+ */
+public class TopicLog implements Closeable {
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".index";
+    // Length + 1, then the CRC32C of the message
+    private static final int HEADER_SIZE = 8;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int segmentMessages;
+    private final int retentionSegments;
+
+    // Oldest first; replaced as a whole when segments roll or are dropped
+    private volatile List<Segment> segments = List.of();
+    // Written after a record is complete, so readers only see finished records
+    private volatile long endOffset;
+
+    /**
+     * Opens the log in dir, recovering any segments already there
+     * @param segmentBytes      size of each segment's data file
+     * @param segmentMessages   maximum number of messages per segment
+     * @param retentionSegments number of segments to keep, 0 to keep all
+     */
+    public TopicLog(Path dir, int segmentBytes, int segmentMessages, int retentionSegments) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.segmentMessages = segmentMessages;
+        this.retentionSegments = retentionSegments;
+        Files.createDirectories(dir);
+
+        List<Long> baseOffsets;
+        try (Stream<Path> files = Files.list(dir)) {
+            baseOffsets = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        List<Segment> recovered = new ArrayList<>();
+        for (long baseOffset : baseOffsets) {
+            recovered.add(Segment.open(dir, baseOffset, segmentBytes, segmentMessages));
+        }
+        if (recovered.isEmpty()) {
+            recovered.add(Segment.open(dir, 0, segmentBytes, segmentMessages));
+        }
+        segments = List.copyOf(recovered);
+        Segment last = recovered.get(recovered.size() - 1);
+        endOffset = last.baseOffset + last.count;
+    }
+
+    /**
+     * Offset of the oldest message still retained
+     */
+    public long startOffset() {
+        return segments.get(0).baseOffset;
+    }
+
+    /**
+     * Offset the next appended message will get
+     */
+    public long endOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Appends a message
+     * @return the offset it was stored at
+     */
+    public synchronized long append(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        Segment active = segments.get(segments.size() - 1);
+        if (!active.hasRoomFor(bytes.length)) {
+            active = roll(bytes.length);
+        }
+        long offset = endOffset;
+        active.append(bytes);
+        endOffset = offset + 1;
+        return offset;
+    }
+
+    /**
+     * Reads the message at an offset between startOffset and endOffset
+     */
+    public String get(long offset) {
+        List<Segment> current = segments;
+        // Binary search for the last segment starting at or before offset
+        int low = 0;
+        int high = current.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (current.get(mid).baseOffset <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Segment segment = current.get(low);
+        if (offset < segment.baseOffset || offset >= endOffset) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is not in the log");
+        }
+        return segment.read((int) (offset - segment.baseOffset));
+    }
+
+    /**
+     * Returns a read-only view of the messages from offset from to the current end.
+     * Elements are read from the mapped files when accessed.
+     */
+    public List<String> read(long from) {
+        long start = Math.max(from, startOffset());
+        long end = Math.max(start, endOffset);
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return TopicLog.this.get(start + index);
+            }
+
+            @Override
+            public int size() {
+                return (int) (end - start);
+            }
+        };
+    }
+
+    /**
+     * Drops every message and starts over with the next message at startOffset
+     */
+    public synchronized void reset(long startOffset) {
+        List<Segment> old = segments;
+        try {
+            for (Segment segment : old) {
+                segment.delete();
+            }
+            segments = List.of(Segment.open(dir, startOffset, segmentBytes, segmentMessages));
+            endOffset = startOffset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reset log in " + dir, e);
+        }
+    }
+
+    /**
+     * Forces appended messages to disk. Only segments appended to since their last
+     * flush are forced, which in practice is the active one.
+     */
+    public void flush() {
+        for (Segment segment : segments) {
+            segment.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.flush();
+            segment.close();
+        }
+    }
+
+    /**
+     * Seals the active segment, starts a new one and applies retention
+     */
+    private Segment roll(int messageBytes) {
+        try {
+            Segment active = segments.get(segments.size() - 1);
+            active.flush();
+            // A message bigger than a whole segment gets a segment of its own size
+            int size = Math.max(segmentBytes, HEADER_SIZE + messageBytes);
+            Segment next = Segment.open(dir, endOffset, size, segmentMessages);
+
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(next);
+            List<Segment> dropped = new ArrayList<>();
+            while (retentionSegments > 0 && updated.size() > retentionSegments) {
+                dropped.add(updated.remove(0));
+            }
+            segments = List.copyOf(updated);
+            for (Segment segment : dropped) {
+                segment.delete();
+            }
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll log segment in " + dir, e);
+        }
+    }
+
+    private static final class Segment {
+        final long baseOffset;
+        final Path logPath;
+        final Path indexPath;
+        final FileChannel logChannel;
+        final FileChannel indexChannel;
+        final MappedByteBuffer data;
+        final MappedByteBuffer index;
+        // Writer state, guarded by the owning TopicLog
+        int count;
+        int position;
+        // Set by appends and cleared by flush, so idle segments are not forced again
+        volatile boolean dirty;
+
+        private Segment(long baseOffset, Path logPath, Path indexPath, FileChannel logChannel, FileChannel indexChannel,
+                        MappedByteBuffer data, MappedByteBuffer index) {
+            this.baseOffset = baseOffset;
+            this.logPath = logPath;
+            this.indexPath = indexPath;
+            this.logChannel = logChannel;
+            this.indexChannel = indexChannel;
+            this.data = data;
+            this.index = index;
+        }
+
+        static Segment open(Path dir, long baseOffset, int segmentBytes, int segmentMessages) throws IOException {
+            String name = String.format("%020d", baseOffset);
+            Path logPath = dir.resolve(name + LOG_SUFFIX);
+            Path indexPath = dir.resolve(name + INDEX_SUFFIX);
+            FileChannel logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int dataSize = (int) Math.max(segmentBytes, logChannel.size());
+            MappedByteBuffer data = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, dataSize);
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentMessages * Integer.BYTES);
+
+            Segment segment = new Segment(baseOffset, logPath, indexPath, logChannel, indexChannel, data, index);
+            segment.recover(segmentMessages);
+            return segment;
+        }
+
+        /**
+         * Counts the complete records and rebuilds the index from them. A torn
+         * record ends the segment: it and anything after it are zeroed, so records
+         * appended in its place are never followed by stale ones.
+         */
+        private void recover(int segmentMessages) {
+            while (count < segmentMessages && position + HEADER_SIZE <= data.capacity()) {
+                int header = data.getInt(position);
+                if (header == 0) {
+                    return;
+                }
+                int length = header - 1;
+                if (header < 0 || position + HEADER_SIZE + length > data.capacity()
+                        || data.getInt(position + Integer.BYTES) != checksum(position + HEADER_SIZE, length)) {
+                    discardFrom(position);
+                    return;
+                }
+                index.putInt(count * Integer.BYTES, position);
+                count++;
+                position += HEADER_SIZE + length;
+            }
+        }
+
+        private int checksum(int start, int length) {
+            CRC32C crc = new CRC32C();
+            crc.update(data.slice(start, length));
+            return (int) crc.getValue();
+        }
+
+        private void discardFrom(int start) {
+            System.err.println("Discarding torn record and everything after it at " + start + " in " + logPath);
+            byte[] zeros = new byte[64 * 1024];
+            for (int at = start; at < data.capacity(); at += zeros.length) {
+                data.put(at, zeros, 0, Math.min(zeros.length, data.capacity() - at));
+            }
+            data.force();
+        }
+
+        boolean hasRoomFor(int messageBytes) {
+            return count < index.capacity() / Integer.BYTES
+                    && position + HEADER_SIZE + messageBytes <= data.capacity();
+        }
+
+        void append(byte[] bytes) {
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            data.put(position + HEADER_SIZE, bytes);
+            data.putInt(position + Integer.BYTES, (int) crc.getValue());
+            index.putInt(count * Integer.BYTES, position);
+            // The length goes last: a non-zero length means the record is complete
+            data.putInt(position, bytes.length + 1);
+            count++;
+            position += HEADER_SIZE + bytes.length;
+            dirty = true;
+        }
+
+        String read(int relativeOffset) {
+            int recordPosition = index.getInt(relativeOffset * Integer.BYTES);
+            int length = data.getInt(recordPosition) - 1;
+            byte[] bytes = new byte[length];
+            data.get(recordPosition + HEADER_SIZE, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void flush() {
+            if (!dirty) {
+                return;
+            }
+            // Cleared first, so an append racing with the force marks the segment again
+            dirty = false;
+            data.force();
+            index.force();
+        }
+
+        void close() throws IOException {
+            logChannel.close();
+            indexChannel.close();
+        }
+
+        /**
+         * Closes and removes the segment's files. The mappings stay readable until
+         * they are garbage collected, so concurrent readers are not affected.
+         */
+        void delete() throws IOException {
+            close();
+            Files.deleteIfExists(logPath);
+            Files.deleteIfExists(indexPath);
+        }
+    }
+}
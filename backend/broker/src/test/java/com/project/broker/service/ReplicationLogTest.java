@@ -0,0 +1,75 @@
+package com.project.broker.service;
+
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateChange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicationLogTest {
+
+    @Test
+    void followerOnTheSameLogGetsOnlyNewerChanges() {
+        ReplicationLog log = new ReplicationLog(10);
+        for (int i = 0; i < 5; i++) {
+            log.append(message("m" + i));
+        }
+
+        ChangeSet changeSet = log.changesSince(log.getLogId(), 2);
+        assertFalse(changeSet.isSnapshotRequired());
+        assertEquals(5, changeSet.getSequence());
+        assertEquals(List.of(3L, 4L, 5L), changeSet.getChanges().stream().map(StateChange::getSequence).toList());
+        assertEquals(List.of("m2", "m3", "m4"), changeSet.getChanges().stream().map(StateChange::getValue).toList());
+    }
+
+    @Test
+    void caughtUpFollowerGetsNoChanges() {
+        ReplicationLog log = new ReplicationLog(10);
+        log.append(message("m0"));
+
+        ChangeSet changeSet = log.changesSince(log.getLogId(), 1);
+        assertFalse(changeSet.isSnapshotRequired());
+        assertTrue(changeSet.getChanges().isEmpty());
+    }
+
+    @Test
+    void followerOfAnotherLogNeedsASnapshot() {
+        ReplicationLog log = new ReplicationLog(10);
+        log.append(message("m0"));
+
+        ChangeSet changeSet = log.changesSince("some-other-log", 0);
+        assertTrue(changeSet.isSnapshotRequired());
+        assertEquals(log.getLogId(), changeSet.getLogId());
+        assertTrue(changeSet.getChanges().isEmpty());
+        assertTrue(log.changesSince(null, 0).isSnapshotRequired());
+    }
+
+    @Test
+    void followerBehindTheRetainedChangesNeedsASnapshot() {
+        ReplicationLog log = new ReplicationLog(3);
+        for (int i = 0; i < 6; i++) {
+            log.append(message("m" + i));
+        }
+
+        // Changes 4 to 6 are retained, so a follower at 3 can still continue but one at 2 cannot
+        assertFalse(log.changesSince(log.getLogId(), 3).isSnapshotRequired());
+        assertEquals(3, log.changesSince(log.getLogId(), 3).getChanges().size());
+        assertTrue(log.changesSince(log.getLogId(), 2).isSnapshotRequired());
+    }
+
+    @Test
+    void followerAheadOfTheLogNeedsASnapshot() {
+        ReplicationLog log = new ReplicationLog(10);
+        log.append(message("m0"));
+
+        assertTrue(log.changesSince(log.getLogId(), 5).isSnapshotRequired());
+    }
+
+    private static StateChange message(String value) {
+        return new StateChange(StateChange.Type.ADD_MESSAGE, "topic", value, null);
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.broker.service;
+
+import com.project.broker.model.ChangeSet;
+import com.project.broker.model.StateChange;
+import com.project.broker.model.StateSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void snapshotRoundTrips(boolean compress) throws IOException {
+        StateSnapshot snapshot = new StateSnapshot();
+        snapshot.setLogId("log-1");
+        snapshot.setSequence(42);
+        snapshot.setTopics(List.of("a", "b"));
+        snapshot.setMessages(Map.of("a", List.of("{\"name\":\"x\",\"vote\":\"yes\"}", "héllo"), "b", List.of()));
+        snapshot.setMessageStartOffsets(Map.of("a", 300L, "b", 0L));
+        snapshot.setSubscribers(Map.of("a", List.of("http://s1", "http://s2"), "b", List.of("http://s1")));
+
+        StateSnapshot decoded = StateCodec.decodeSnapshot(StateCodec.encode(snapshot, compress));
+
+        assertEquals("log-1", decoded.getLogId());
+        assertEquals(42, decoded.getSequence());
+        assertEquals(snapshot.getTopics(), decoded.getTopics());
+        assertEquals(snapshot.getMessages(), decoded.getMessages());
+        assertEquals(snapshot.getMessageStartOffsets(), decoded.getMessageStartOffsets());
+        assertEquals(snapshot.getSubscribers(), decoded.getSubscribers());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void changeSetRoundTrips(boolean compress) throws IOException {
+        StateChange message = change(1, StateChange.Type.ADD_MESSAGE, "a", "{\"vote\":\"no\"}", null);
+        message.setOffset(7);
+        List<StateChange> changes = List.of(
+                message,
+                change(2, StateChange.Type.ADD_TOPIC, "b", null, null),
+                change(3, StateChange.Type.SET_TOPICS, null, null, List.of("a", "b")),
+                change(4, StateChange.Type.ADD_SUBSCRIBER, "a", "http://s1", null),
+                change(5, StateChange.Type.REMOVE_SUBSCRIBER, "a", "http://s1", List.of()));
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setLogId("log-1");
+        changeSet.setSequence(5);
+        changeSet.setChanges(changes);
+
+        ChangeSet decoded = StateCodec.decodeChangeSet(StateCodec.encode(changeSet, compress));
+
+        assertEquals("log-1", decoded.getLogId());
+        assertEquals(5, decoded.getSequence());
+        assertEquals(changes.size(), decoded.getChanges().size());
+        for (int i = 0; i < changes.size(); i++) {
+            StateChange expected = changes.get(i);
+            StateChange actual = decoded.getChanges().get(i);
+            assertEquals(expected.getSequence(), actual.getSequence());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getTopic(), actual.getTopic());
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getValues(), actual.getValues());
+            assertEquals(expected.getOffset(), actual.getOffset());
+        }
+    }
+
+    @Test
+    void snapshotRequiredChangeSetRoundTrips() throws IOException {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setSequence(9);
+        changeSet.setSnapshotRequired(true);
+        changeSet.setChanges(List.of());
+
+        ChangeSet decoded = StateCodec.decodeChangeSet(StateCodec.encode(changeSet, false));
+
+        assertNull(decoded.getLogId());
+        assertTrue(decoded.isSnapshotRequired());
+        assertTrue(decoded.getChanges().isEmpty());
+    }
+
+    @Test
+    void compressingRepetitiveStateShrinksItAndIsIdempotent() throws IOException {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add("{\"name\":\"voter" + i + "\",\"vote\":\"yes\"}");
+        }
+        StateSnapshot snapshot = new StateSnapshot();
+        snapshot.setTopics(List.of("a"));
+        snapshot.setMessages(Map.of("a", messages));
+        snapshot.setMessageStartOffsets(Map.of());
+        snapshot.setSubscribers(Map.of());
+
+        byte[] plain = StateCodec.encode(snapshot, false);
+        byte[] compressed = StateCodec.compress(plain);
+
+        assertTrue(compressed.length < plain.length / 2);
+        assertArrayEquals(compressed, StateCodec.compress(compressed));
+        assertEquals(messages, StateCodec.decodeSnapshot(compressed).getMessages().get("a"));
+    }
+
+    @Test
+    void malformedPayloadsAreRejected() throws IOException {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setLogId("log-1");
+        changeSet.setSequence(1);
+        changeSet.setChanges(List.of(change(1, StateChange.Type.ADD_TOPIC, "a", null, null)));
+        byte[] encoded = StateCodec.encode(changeSet, false);
+
+        assertThrows(IOException.class, () -> StateCodec.decodeSnapshot(encoded));
+        assertThrows(IOException.class, () -> StateCodec.decodeChangeSet(Arrays.copyOf(encoded, encoded.length - 2)));
+        assertThrows(IOException.class, () -> StateCodec.decodeChangeSet(new byte[] {1, 2, 3}));
+
+        // The change ends with its type, topic ref, value ref and values count, one byte each here
+        int typeOffset = encoded.length - 4;
+        assertEquals(StateChange.Type.ADD_TOPIC.ordinal(), encoded[typeOffset]);
+        byte[] unknownType = encoded.clone();
+        unknownType[typeOffset] = (byte) StateChange.Type.values().length;
+        assertThrows(IOException.class, () -> StateCodec.decodeChangeSet(unknownType));
+
+        byte[] badTopic = encoded.clone();
+        badTopic[typeOffset + 1] = 5;
+        assertThrows(IOException.class, () -> StateCodec.decodeChangeSet(badTopic));
+    }
+
+    private static StateChange change(long sequence, StateChange.Type type, String topic, String value, List<String> values) {
+        StateChange change = new StateChange(type, topic, value, values);
+        change.setSequence(sequence);
+        return change;
+    }
+}
@@ -0,0 +1,105 @@
+package com.project.broker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriberRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+    private static final int TOPICS = 4;
+    private static final int SUBSCRIBERS = 6;
+
+    @Test
+    void addAndRemoveKeepBothIndexesInStep() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+
+        assertTrue(registry.add("a", "http://s1"));
+        assertFalse(registry.add("a", "http://s1"));
+        assertTrue(registry.add("b", "http://s1"));
+        assertTrue(registry.add("a", "http://s2"));
+
+        assertEquals(Set.of("http://s1", "http://s2"), registry.getSubscribers("a"));
+        assertEquals(Set.of("a", "b"), registry.getTopics("http://s1"));
+        assertTrue(registry.isSubscribed("http://s2", "a"));
+        assertFalse(registry.isSubscribed("http://s2", "b"));
+
+        assertTrue(registry.remove("a", "http://s1"));
+        assertFalse(registry.remove("a", "http://s1"));
+        assertEquals(Set.of("b"), registry.getTopics("http://s1"));
+
+        assertTrue(registry.remove("b", "http://s1"));
+        assertEquals(Set.of(), registry.getTopics("http://s1"));
+        assertEquals(Set.of("http://s2"), registry.getAllSubscribers());
+        // A topic whose last subscriber left is dropped
+        assertEquals(Map.of("a", List.of("http://s2")), registry.toMap());
+    }
+
+    @Test
+    void replaceAllRebuildsBothIndexes() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        registry.add("old", "http://s1");
+
+        registry.replaceAll(Map.of("a", List.of("http://s1", "http://s2"), "b", List.of("http://s2")));
+
+        assertEquals(Set.of("a"), registry.getTopics("http://s1"));
+        assertEquals(Set.of("a", "b"), registry.getTopics("http://s2"));
+        assertEquals(Set.of(), registry.getSubscribers("old"));
+    }
+
+    @Test
+    void concurrentSubscribeAndUnsubscribeLeaveTheIndexesConsistent() throws InterruptedException {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String topic = "topic-" + random.nextInt(TOPICS);
+                        String subscriber = "http://subscriber-" + random.nextInt(SUBSCRIBERS);
+                        if (random.nextBoolean()) {
+                            registry.add(topic, subscriber);
+                        } else {
+                            registry.remove(topic, subscriber);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+
+        // Rebuild the reverse index from the forward one and compare
+        Map<String, Set<String>> expectedTopics = new HashMap<>();
+        registry.toMap().forEach((topic, subscribers) -> {
+            assertFalse(subscribers.isEmpty());
+            assertEquals(subscribers.size(), new HashSet<>(subscribers).size());
+            for (String subscriber : subscribers) {
+                expectedTopics.computeIfAbsent(subscriber, k -> new HashSet<>()).add(topic);
+            }
+        });
+        assertEquals(expectedTopics.keySet(), registry.getAllSubscribers());
+        for (String subscriber : new ArrayList<>(registry.getAllSubscribers())) {
+            assertEquals(expectedTopics.get(subscriber), registry.getTopics(subscriber));
+        }
+    }
+}
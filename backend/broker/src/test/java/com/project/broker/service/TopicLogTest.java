@@ -0,0 +1,168 @@
+package com.project.broker.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopicLogTest {
+
+    // Length + 1 and CRC32C, ahead of each message
+    private static final int HEADER_SIZE = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenedLogKeepsEveryAppendedMessage() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(0, log.append("a"));
+            assertEquals(1, log.append("bb"));
+            assertEquals(2, log.append("ccc"));
+        }
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(3, log.endOffset());
+            assertEquals(List.of("a", "bb", "ccc"), List.copyOf(log.read(0)));
+            assertEquals(3, log.append("d"));
+        }
+    }
+
+    @Test
+    void recoveryStopsAtChecksumMismatchAndDiscardsTheRest() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            log.append("first");
+            log.append("second");
+            log.append("third");
+        }
+        // Corrupt one byte of the second message; its header is intact
+        overwrite(segmentFile(0), HEADER_SIZE + "first".length() + HEADER_SIZE + 1, new byte[] { 'X' });
+
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(1, log.endOffset());
+            assertEquals(List.of("first"), List.copyOf(log.read(0)));
+            assertEquals(1, log.append("replacement"));
+        }
+        // The discarded third record must not come back after the replacement
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(List.of("first", "replacement"), List.copyOf(log.read(0)));
+        }
+    }
+
+    @Test
+    void recoveryDiscardsRecordWhoseMessageNeverReachedDisk() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            log.append("kept");
+            log.append("torn");
+        }
+        // A torn write: the header of the second record is there, its message bytes are not
+        overwrite(segmentFile(0), HEADER_SIZE + "kept".length() + HEADER_SIZE, new byte["torn".length()]);
+
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(1, log.endOffset());
+            assertEquals(List.of("kept"), List.copyOf(log.read(0)));
+        }
+    }
+
+    @Test
+    void recoveryDiscardsHeaderPointingPastTheSegment() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            log.append("kept");
+            log.append("bad");
+        }
+        overwrite(segmentFile(0), HEADER_SIZE + "kept".length(), ByteBuffer.allocate(4).putInt(1_000_000).array());
+
+        try (TopicLog log = new TopicLog(dir, 4096, 100, 0)) {
+            assertEquals(List.of("kept"), List.copyOf(log.read(0)));
+        }
+    }
+
+    @Test
+    void rollsSegmentsWhenFullAndReadsAcrossThem() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 3, 0)) {
+            for (int i = 0; i < 10; i++) {
+                log.append("m" + i);
+            }
+            assertEquals(4, countSegments());
+            assertEquals("m4", log.get(4));
+            assertEquals(List.of("m7", "m8", "m9"), List.copyOf(log.read(7)));
+        }
+        try (TopicLog log = new TopicLog(dir, 4096, 3, 0)) {
+            assertEquals(10, log.endOffset());
+            assertEquals("m9", log.get(9));
+        }
+    }
+
+    @Test
+    void messageLargerThanASegmentGetsItsOwnSegment() throws IOException {
+        String large = "x".repeat(200);
+        try (TopicLog log = new TopicLog(dir, 64, 100, 0)) {
+            log.append("small");
+            log.append(large);
+            log.append("after");
+            assertEquals(List.of("small", large, "after"), List.copyOf(log.read(0)));
+        }
+        try (TopicLog log = new TopicLog(dir, 64, 100, 0)) {
+            assertEquals(List.of("small", large, "after"), List.copyOf(log.read(0)));
+        }
+    }
+
+    @Test
+    void retentionDropsTheOldestSegments() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 2, 2)) {
+            for (int i = 0; i < 7; i++) {
+                log.append("m" + i);
+            }
+            // Segments hold offsets 0-1, 2-3, 4-5 and 6; only the last two are kept
+            assertEquals(4, log.startOffset());
+            assertEquals(2, countSegments());
+            assertEquals(List.of("m4", "m5", "m6"), List.copyOf(log.read(0)));
+            assertThrows(IndexOutOfBoundsException.class, () -> log.get(3));
+        }
+        try (TopicLog log = new TopicLog(dir, 4096, 2, 2)) {
+            assertEquals(4, log.startOffset());
+            assertEquals(7, log.endOffset());
+        }
+    }
+
+    @Test
+    void resetStartsOverAtTheGivenOffset() throws IOException {
+        try (TopicLog log = new TopicLog(dir, 4096, 2, 0)) {
+            for (int i = 0; i < 5; i++) {
+                log.append("m" + i);
+            }
+            log.reset(42);
+            assertEquals(42, log.startOffset());
+            assertEquals(42, log.endOffset());
+            assertEquals(42, log.append("fresh"));
+        }
+        try (TopicLog log = new TopicLog(dir, 4096, 2, 0)) {
+            assertEquals(List.of("fresh"), List.copyOf(log.read(0)));
+        }
+    }
+
+    private Path segmentFile(long baseOffset) {
+        return dir.resolve(String.format("%020d.log", baseOffset));
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private static void overwrite(Path file, long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+}
@@ -2,9 +2,7 @@ package com.project.coordinator;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 @EnableScheduling
@@ -13,9 +11,4 @@ public class CoordinatorApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(CoordinatorApplication.class, args);
 	}
-
-	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
 } 
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.project.coordinator.config;
+
+import com.project.coordinator.service.FailureDetector;
+import com.project.coordinator.service.FixedTimeoutFailureDetector;
+import com.project.coordinator.service.PhiAccrualFailureDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FailureDetectorConfig {
+
+    // "phi-accrual" or "fixed-timeout"
+    @Value("${coordinator.failure-detector.type:phi-accrual}")
+    private String type;
+
+    @Value("${coordinator.failure-detector.threshold:8.0}")
+    private double threshold;
+
+    @Value("${coordinator.failure-detector.max-sample-size:100}")
+    private int maxSampleSize;
+
+    @Value("${coordinator.failure-detector.min-std-deviation-ms:100}")
+    private double minStdDeviationMs;
+
+    @Value("${coordinator.failure-detector.acceptable-pause-ms:200}")
+    private long acceptablePauseMs;
+
+    @Value("${coordinator.failure-detector.first-heartbeat-estimate-ms:250}")
+    private long firstHeartbeatEstimateMs;
+
+    @Value("${coordinator.failure-detector.max-timeout-ms:10000}")
+    private long maxTimeoutMs;
+
+    @Bean
+    public FailureDetector failureDetector() {
+        if ("fixed-timeout".equals(type)) {
+            return new FixedTimeoutFailureDetector(maxTimeoutMs);
+        }
+        return new PhiAccrualFailureDetector(threshold, maxSampleSize, minStdDeviationMs,
+                acceptablePauseMs, firstHeartbeatEstimateMs, maxTimeoutMs);
+    }
+}
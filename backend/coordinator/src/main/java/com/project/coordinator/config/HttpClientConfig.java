@@ -0,0 +1,39 @@
+package com.project.coordinator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${internode.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${internode.http.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    /**
+     * Shared client for calls to other nodes. It keeps connections alive and
+     * reuses them across requests, and supports asynchronous sends.
+     */
+    @Bean
+    public HttpClient interNodeHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(HttpClient interNodeHttpClient) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(interNodeHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(requestTimeoutMs));
+        return new RestTemplate(requestFactory);
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.coordinator.controller;
 
+import com.project.coordinator.model.HeartbeatResponse;
 import com.project.coordinator.service.CoordinatorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +26,15 @@ public class CoordinatorApiController {
         return coordinatorService.getLeader();
     }
 
+    /**
+     * Membership epoch; changes whenever the broker list or the leader does
+     */
+    @GetMapping("/membership-epoch")
+    public long getMembershipEpoch(@RequestParam long timestamp) {
+        coordinatorService.updateClock(timestamp);
+        return coordinatorService.getMembershipEpoch();
+    }
+
     @PostMapping("/register")
     public void registerBroker(@RequestBody String brokerUrl, @RequestParam long timestamp) {
         coordinatorService.updateClock(timestamp);
@@ -37,6 +47,20 @@ public class CoordinatorApiController {
         coordinatorService.heartbeat(brokerUrl);
     }
 
+    /**
+     * Heartbeat that also returns the leader and broker list when they changed since knownEpoch,
+     * so brokers don't have to poll /leader and /brokers separately. Brokers report ready once
+     * they have caught up with the leader; only ready brokers are elected.
+     */
+    @PostMapping("/heartbeat/sync")
+    public HeartbeatResponse heartbeatSync(@RequestBody String brokerUrl,
+                                           @RequestParam(defaultValue = "-1") long knownEpoch,
+                                           @RequestParam(defaultValue = "false") boolean ready,
+                                           @RequestParam long timestamp) {
+        coordinatorService.updateClock(timestamp);
+        return coordinatorService.heartbeat(brokerUrl, knownEpoch, ready);
+    }
+
     @GetMapping("/ping")
     public String ping(@RequestParam long timestamp) {
         coordinatorService.updateClock(timestamp);
@@ -5,11 +5,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Persisted coordinator state, written as the membership log's snapshot
+ */
 public class CoordinatorData {
+    private long epoch;
     private List<String> brokers = new ArrayList<>();
     private Map<String, Long> lastHeartbeats = new HashMap<>();
     private String leader;
 
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(long epoch) {
+        this.epoch = epoch;
+    }
+
     public List<String> getBrokers() {
         return brokers;
     }
@@ -0,0 +1,107 @@
+package com.project.coordinator.service;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches broker heartbeats and reports brokers that stop sending them.
+ *
+ * Instead of scanning every broker on a fixed schedule, each broker has one
+ * pending check scheduled for the moment the failure detector would suspect it.
+ * The checks sit in the scheduler's priority queue, so each broker is checked
+ * exactly when its deadline passes.
+ */
+@Service
+public class BrokerFailureMonitor {
+
+    private final FailureDetector failureDetector;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, ScheduledFuture<?>> pendingChecks = new ConcurrentHashMap<>();
+    private volatile Consumer<String> failureHandler = brokerUrl -> { };
+
+    public BrokerFailureMonitor(FailureDetector failureDetector) {
+        this.failureDetector = failureDetector;
+        ScheduledThreadPoolExecutor executor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
+        // Cancelled checks are dropped from the queue right away
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+
+    /**
+     * Sets the callback invoked with the URL of a broker that has been declared dead
+     */
+    public void setFailureHandler(Consumer<String> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    public void heartbeat(String brokerUrl) {
+        failureDetector.heartbeat(brokerUrl, System.currentTimeMillis());
+        scheduleCheck(brokerUrl);
+    }
+
+    /**
+     * Starts watching a broker that is known but has not sent a heartbeat yet,
+     * declaring it dead if none arrives within the grace period
+     */
+    public void expectHeartbeat(String brokerUrl, long graceMs) {
+        failureDetector.expect(brokerUrl, System.currentTimeMillis() + graceMs);
+        scheduleCheck(brokerUrl);
+    }
+
+    /**
+     * Stops watching a broker
+     */
+    public void remove(String brokerUrl) {
+        ScheduledFuture<?> check = pendingChecks.remove(brokerUrl);
+        if (check != null) {
+            check.cancel(false);
+        }
+        failureDetector.remove(brokerUrl);
+    }
+
+    private void scheduleCheck(String brokerUrl) {
+        long delay = Math.max(0, failureDetector.suspectAt(brokerUrl) - System.currentTimeMillis());
+        pendingChecks.compute(brokerUrl, (url, pending) -> {
+            // A later deadline leaves a waiting check alone; when it fires it sees the
+            // newer heartbeat and reschedules, so steady heartbeats rarely touch the queue
+            if (pending != null && !pending.isDone()) {
+                long pendingDelay = pending.getDelay(TimeUnit.MILLISECONDS);
+                if (pendingDelay > 0 && pendingDelay <= delay) {
+                    return pending;
+                }
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return scheduler.schedule(() -> check(url), delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void check(String brokerUrl) {
+        long suspectAt = failureDetector.suspectAt(brokerUrl);
+        if (suspectAt == Long.MIN_VALUE) {
+            return;
+        }
+        if (System.currentTimeMillis() < suspectAt) {
+            // A heartbeat arrived while this check was firing
+            scheduleCheck(brokerUrl);
+            return;
+        }
+        remove(brokerUrl);
+        failureHandler.accept(brokerUrl);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,41 +1,98 @@
 package com.project.coordinator.service;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import com.project.coordinator.model.HeartbeatResponse;
+import com.project.coordinator.model.CoordinatorData;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class CoordinatorService {
 
-    private final RestTemplate restTemplate;
-    private List<String> brokers = new ArrayList<>();
-    private Map<String, Long> lastHeartbeats = new HashMap<>();
-    private String leader;
-    private long logicalClock = 0;
+    private final LeaderNotificationService leaderNotificationService;
+    private final BrokerFailureMonitor failureMonitor;
+    private final MembershipLog membershipLog;
+    private final MembershipTable membership = new MembershipTable();
+    private final LamportClock clock = new LamportClock();
     private final Pattern portPattern = Pattern.compile(":(\\d+)");
-    
-    // Track brokers that need leader notification retries
-    private final Map<String, Integer> pendingLeaderNotifications = new ConcurrentHashMap<>();
-    private static final int MAX_NOTIFICATION_RETRIES = 3;
 
-    public CoordinatorService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    // Time restored brokers get to send their first heartbeat after a coordinator restart
+    @Value("${coordinator.failure-detector.restore-grace-ms:10000}")
+    private long restoreGraceMs;
+
+    public CoordinatorService(LeaderNotificationService leaderNotificationService,
+                              BrokerFailureMonitor failureMonitor,
+                              MembershipLog membershipLog) {
+        this.leaderNotificationService = leaderNotificationService;
+        this.failureMonitor = failureMonitor;
+        this.membershipLog = membershipLog;
+        failureMonitor.setFailureHandler(this::removeDeadBroker);
     }
 
+    /**
+     * Rebuilds the membership from the membership log, so brokers don't have to
+     * re-register and trigger new elections after a coordinator restart
+     */
+    @PostConstruct
+    public synchronized void restoreMembership() throws IOException {
+        MembershipLog.Recovered recovered = membershipLog.recover();
+        CoordinatorData snapshot = recovered.snapshot();
+        if (snapshot != null) {
+            for (String broker : snapshot.getBrokers()) {
+                membership.add(broker, extractPort(broker));
+            }
+            membership.setLeader(snapshot.getLeader());
+            membership.restoreEpoch(snapshot.getEpoch());
+        }
+        for (MembershipLog.Entry entry : recovered.entries()) {
+            switch (entry.type()) {
+                case ADD_BROKER -> membership.add(entry.brokerUrl(), extractPort(entry.brokerUrl()));
+                case REMOVE_BROKER -> membership.remove(entry.brokerUrl());
+                case SET_LEADER -> membership.setLeader(entry.brokerUrl());
+            }
+            membership.restoreEpoch(entry.epoch());
+        }
+
+        MembershipTable.Snapshot restored = membership.snapshot();
+        if (restored.leader() != null) {
+            // Readiness isn't logged, and until the first heartbeats report it no member would be
+            // ready, so any newcomer that outranks the others could win an election. The restored
+            // leader held the state the others catch up with, so it counts as ready meanwhile.
+            membership.markReady(restored.leader());
+        }
+        if (restored.epoch() > 0) {
+            // Restored brokers get a grace period instead of a made-up heartbeat, which would add a fake
+            // sample to their history and only give them the detector's usual deadline to get back in
+            // touch. Ones that died while we were down are dropped when the grace period passes.
+            restored.brokers().forEach(broker -> failureMonitor.expectHeartbeat(broker, restoreGraceMs));
+            System.out.println("Restored membership at epoch " + restored.epoch() + ": brokers " + restored.brokers()
+                    + ", leader " + restored.leader());
+        }
+    }
+
+    /**
+     * @return an immutable snapshot of the live brokers
+     */
     public List<String> getBrokers() {
         incrementClock();
-        return brokers;
+        return membership.snapshot().brokers();
     }
 
     public String getLeader() {
         incrementClock();
-        return leader;
+        return membership.snapshot().leader();
+    }
+
+    /**
+     * @return the membership epoch, which changes whenever the broker list or the leader does
+     */
+    public long getMembershipEpoch() {
+        return membership.snapshot().epoch();
     }
 
     /**
@@ -53,84 +110,105 @@ public class CoordinatorService {
 
     public void registerBroker(String brokerUrl) {
         incrementClock();
-        if (!brokers.contains(brokerUrl)) {
-            brokers.add(brokerUrl);
-            lastHeartbeats.put(brokerUrl, System.currentTimeMillis());
-            System.out.println("Registered broker: " + brokerUrl);
-            
-            // Run leader election when a new broker joins
-            electNewLeader();
+        failureMonitor.heartbeat(brokerUrl);
+        if (!membership.contains(brokerUrl)) {
+            addBroker(brokerUrl, "Registered broker: ");
         }
     }
 
     public void heartbeat(String brokerUrl) {
         incrementClock();
-        lastHeartbeats.put(brokerUrl, System.currentTimeMillis());
-        if (!brokers.contains(brokerUrl)) {
-            brokers.add(brokerUrl);
-            System.out.println("Added broker from heartbeat: " + brokerUrl);
-            
-            // Run leader election when a new broker is discovered
-            electNewLeader();
+        failureMonitor.heartbeat(brokerUrl);
+        // Known brokers only cost a lock-free lookup
+        if (!membership.contains(brokerUrl)) {
+            addBroker(brokerUrl, "Added broker from heartbeat: ");
         }
     }
 
-    @Scheduled(fixedRate = 5000)
-    public void checkBrokerStatus() {
-        incrementClock();
-        long now = System.currentTimeMillis();
-        List<String> deadBrokers = new ArrayList<>();
+    /**
+     * Records a heartbeat and tells the broker about membership changes in the same round trip
+     * @param brokerUrl  the broker sending the heartbeat
+     * @param knownEpoch the membership epoch the broker last saw, or -1 if it has none
+     * @param ready      whether the broker has caught up with the leader
+     * @return the current epoch, plus the leader and broker list if they changed since knownEpoch
+     */
+    public HeartbeatResponse heartbeat(String brokerUrl, long knownEpoch, boolean ready) {
+        heartbeat(brokerUrl);
+        if (ready && membership.markReady(brokerUrl)) {
+            brokerReady(brokerUrl);
+        } else if (!ready && membership.markNotReady(brokerUrl)) {
+            System.out.println("Broker is no longer ready: " + brokerUrl);
+        }
+        MembershipTable.Snapshot current = membership.snapshot();
+        if (current.epoch() == knownEpoch) {
+            return new HeartbeatResponse(current.epoch(), false, null, null);
+        }
+        return new HeartbeatResponse(current.epoch(), true, current.leader(), current.brokers());
+    }
 
-        for (Map.Entry<String, Long> entry : lastHeartbeats.entrySet()) {
-            if (now - entry.getValue() > 10000) {  // 10 seconds timeout
-                deadBrokers.add(entry.getKey());
+    /**
+     * Membership changes and the election that follows them run one at a time
+     */
+    private synchronized void addBroker(String brokerUrl, String logPrefix) {
+        if (membership.add(brokerUrl, extractPort(brokerUrl))) {
+            log(MembershipLog.Type.ADD_BROKER, brokerUrl);
+            System.out.println(logPrefix + brokerUrl);
+
+            // A newcomer has no state yet, so it only wins the election while no broker is ready,
+            // as when the cluster first starts; otherwise it learns the leader from its heartbeat
+            // replies and is considered again once it has caught up
+            if (brokerUrl.equals(membership.electable())) {
+                electNewLeader();
             }
         }
+    }
 
-        boolean leaderDied = false;
-        for (String deadBroker : deadBrokers) {
-            brokers.remove(deadBroker);
-            lastHeartbeats.remove(deadBroker);
-            System.out.println("Removed dead broker: " + deadBroker);
-            
-            if (leader != null && leader.equals(deadBroker)) {
-                leaderDied = true;
-            }
+    /**
+     * Called once a broker reports that it has caught up with the leader. A ready
+     * broker that outranks the leader takes over now that it has the leader's state.
+     */
+    private synchronized void brokerReady(String brokerUrl) {
+        System.out.println("Broker is ready: " + brokerUrl);
+        if (brokerUrl.equals(membership.electable())) {
+            electNewLeader();
+        }
+    }
+
+    /**
+     * Called by the failure monitor when a broker has stopped sending heartbeats
+     */
+    private synchronized void removeDeadBroker(String deadBroker) {
+        incrementClock();
+        if (!membership.remove(deadBroker)) {
+            return;
         }
+        log(MembershipLog.Type.REMOVE_BROKER, deadBroker);
+        System.out.println("Removed dead broker: " + deadBroker);
 
-        if (leaderDied) {
+        if (deadBroker.equals(membership.snapshot().leader())) {
             electNewLeader();
         }
     }
 
     /**
      * Implements the Bully Algorithm for leader election
-     * Selects the broker with the highest port number as the leader
+     * Selects the ready broker with the highest port number as the leader, so a
+     * broker that has not caught up never leads the others with an empty state.
+     * Ports are parsed when brokers join, so this is a lookup rather than a scan.
      */
     private void electNewLeader() {
         incrementClock();
-        if (brokers.isEmpty()) {
-            leader = null;
-            System.out.println("No brokers available, leader set to null");
+        String newLeader = membership.electable();
+        if (!membership.setLeader(newLeader)) {
             return;
         }
-        
-        // Find the broker with the highest port number (Bully Algorithm)
-        String highestPortBroker = null;
-        int highestPort = -1;
-        
-        for (String broker : brokers) {
-            int port = extractPort(broker);
-            if (port > highestPort) {
-                highestPort = port;
-                highestPortBroker = broker;
-            }
+        log(MembershipLog.Type.SET_LEADER, newLeader);
+        if (newLeader == null) {
+            System.out.println("No brokers available, leader set to null");
+            return;
         }
-        
-        // Set the new leader
-        leader = highestPortBroker;
-        System.out.println("Elected new leader using Bully Algorithm: " + leader + " with port " + highestPort);
-        
+        System.out.println("Elected new leader using Bully Algorithm: " + newLeader + " with port " + extractPort(newLeader));
+
         // Notify all brokers about the new leader
         notifyBrokersAboutNewLeader();
     }
@@ -139,69 +217,30 @@ public class CoordinatorService {
      * Notifies all brokers about the new leader
      */
     private void notifyBrokersAboutNewLeader() {
-        if (leader == null) return;
-        
-        for (String broker : brokers) {
-            try {
-                restTemplate.postForObject(
-                    broker + "/api/leader-changed?timestamp=" + logicalClock,
-                    leader,
-                    String.class
-                );
-                System.out.println("Notified broker " + broker + " about new leader: " + leader);
-                // Remove from pending notifications if successful
-                pendingLeaderNotifications.remove(broker);
-            } catch (RestClientException e) {
-                System.err.println("Failed to notify broker " + broker + " about new leader: " + e.getMessage());
-                // Add to pending notifications for retry
-                pendingLeaderNotifications.put(broker, 0);
-            }
-        }
+        MembershipTable.Snapshot current = membership.snapshot();
+        if (current.leader() == null) return;
+
+        leaderNotificationService.notifyLeaderChange(current.brokers(), current.leader(), clock);
     }
-    
+
     /**
-     * Scheduled task to retry leader notifications for brokers that weren't ready
+     * Records a membership change that was just applied; callers hold the service lock,
+     * so log order matches epoch order
      */
-    @Scheduled(fixedRate = 2000)
-    public void retryLeaderNotifications() {
-        if (leader == null || pendingLeaderNotifications.isEmpty()) return;
-        
-        Iterator<Map.Entry<String, Integer>> iterator = pendingLeaderNotifications.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, Integer> entry = iterator.next();
-            String broker = entry.getKey();
-            int retryCount = entry.getValue();
-            
-            if (retryCount >= MAX_NOTIFICATION_RETRIES) {
-                System.out.println("Max retries reached for broker " + broker + ". Giving up on leader notification.");
-                iterator.remove();
-                continue;
-            }
-            
-            try {
-                restTemplate.postForObject(
-                    broker + "/api/leader-changed?timestamp=" + logicalClock,
-                    leader,
-                    String.class
-                );
-                System.out.println("Successfully notified broker " + broker + " about leader after retry");
-                iterator.remove();
-            } catch (Exception e) {
-                System.err.println("Retry failed to notify broker " + broker + " about leader: " + e.getMessage());
-                pendingLeaderNotifications.put(broker, retryCount + 1);
-            }
-        }
+    private void log(MembershipLog.Type type, String brokerUrl) {
+        MembershipTable.Snapshot current = membership.snapshot();
+        membershipLog.append(new MembershipLog.Entry(current.epoch(), type, brokerUrl), current);
     }
 
-    private synchronized void incrementClock() {
-        logicalClock++;
+    private void incrementClock() {
+        clock.tick();
     }
 
-    public synchronized void updateClock(long receivedTimestamp) {
-        logicalClock = Math.max(logicalClock, receivedTimestamp) + 1;
+    public void updateClock(long receivedTimestamp) {
+        clock.update(receivedTimestamp);
     }
 
-    public synchronized long getLogicalClock() {
-        return logicalClock;
+    public long getLogicalClock() {
+        return clock.get();
     }
 } 
\ No newline at end of file
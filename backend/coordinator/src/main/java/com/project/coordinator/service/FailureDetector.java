@@ -0,0 +1,28 @@
+package com.project.coordinator.service;
+
+/**
+ * Decides, from the heartbeats seen so far, when a broker should be considered dead
+ */
+public interface FailureDetector {
+
+    /**
+     * Records a heartbeat from a broker
+     */
+    void heartbeat(String brokerUrl, long nowMillis);
+
+    /**
+     * Watches a broker that has not sent a heartbeat yet. It is suspected at the
+     * deadline unless a heartbeat arrives first, which then starts its history afresh.
+     */
+    void expect(String brokerUrl, long deadlineMillis);
+
+    /**
+     * Returns the time at which the broker will be considered dead if no further heartbeat arrives
+     */
+    long suspectAt(String brokerUrl);
+
+    /**
+     * Forgets everything known about a broker
+     */
+    void remove(String brokerUrl);
+}
@@ -0,0 +1,47 @@
+package com.project.coordinator.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Considers a broker dead a fixed time after its last heartbeat
+ */
+public class FixedTimeoutFailureDetector implements FailureDetector {
+
+    private final long timeoutMs;
+    private final Map<String, Long> lastHeartbeats = new ConcurrentHashMap<>();
+    // Deadlines of brokers being watched before their first heartbeat
+    private final Map<String, Long> expectedBy = new ConcurrentHashMap<>();
+
+    public FixedTimeoutFailureDetector(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void heartbeat(String brokerUrl, long nowMillis) {
+        lastHeartbeats.put(brokerUrl, nowMillis);
+        expectedBy.remove(brokerUrl);
+    }
+
+    @Override
+    public void expect(String brokerUrl, long deadlineMillis) {
+        if (!lastHeartbeats.containsKey(brokerUrl)) {
+            expectedBy.put(brokerUrl, deadlineMillis);
+        }
+    }
+
+    @Override
+    public long suspectAt(String brokerUrl) {
+        Long last = lastHeartbeats.get(brokerUrl);
+        if (last != null) {
+            return last + timeoutMs;
+        }
+        return expectedBy.getOrDefault(brokerUrl, Long.MIN_VALUE);
+    }
+
+    @Override
+    public void remove(String brokerUrl) {
+        lastHeartbeats.remove(brokerUrl);
+        expectedBy.remove(brokerUrl);
+    }
+}
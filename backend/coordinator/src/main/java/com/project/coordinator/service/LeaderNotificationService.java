@@ -0,0 +1,138 @@
+package com.project.coordinator.service;
+
+import com.project.coordinator.client.InterNodeClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells every broker about a new leader.
+ *
+ * Brokers are notified concurrently, with at most max-parallel requests in
+ * flight and a deadline on each one. Brokers that fail are retried on their own
+ * with exponential backoff, so one slow or dead broker never holds up the rest.
+ * When every broker has acknowledged or been given up on, the time the whole
+ * round took is logged.
+ */
+@Service
+public class LeaderNotificationService {
+
+    private final InterNodeClient interNodeClient;
+
+    @Value("${coordinator.notify.max-parallel:16}")
+    private int maxParallel;
+
+    @Value("${coordinator.notify.deadline-ms:1000}")
+    private long deadlineMs;
+
+    @Value("${coordinator.notify.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${coordinator.notify.initial-backoff-ms:200}")
+    private long initialBackoffMs;
+
+    @Value("${coordinator.notify.max-backoff-ms:5000}")
+    private long maxBackoffMs;
+
+    // A newer round makes older rounds stop retrying
+    private volatile NotificationRound currentRound;
+
+    public LeaderNotificationService(InterNodeClient interNodeClient) {
+        this.interNodeClient = interNodeClient;
+    }
+
+    /**
+     * Starts notifying the given brokers that leader is the new leader.
+     * Returns immediately; the notifications complete in the background.
+     */
+    public void notifyLeaderChange(List<String> brokers, String leader, LamportClock clock) {
+        NotificationRound round = new NotificationRound(leader, clock, brokers.size());
+        currentRound = round;
+        if (brokers.isEmpty()) {
+            return;
+        }
+
+        Queue<String> queue = new ConcurrentLinkedQueue<>(brokers);
+        int lanes = Math.max(1, Math.min(maxParallel, brokers.size()));
+        for (int i = 0; i < lanes; i++) {
+            drain(queue, round);
+        }
+    }
+
+    /**
+     * Notifies brokers from the queue one after another, so each lane has at most one request in flight
+     */
+    private CompletableFuture<Void> drain(Queue<String> queue, NotificationRound round) {
+        String broker = queue.poll();
+        if (broker == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return attempt(broker, round, 0).thenCompose(ignored -> drain(queue, round));
+    }
+
+    private CompletableFuture<Void> attempt(String broker, NotificationRound round, int attempt) {
+        CompletableFuture<String> request;
+        try {
+            request = interNodeClient.post(broker, "/api/leader-changed", round.leader, round.clock.tick(), Duration.ofMillis(deadlineMs));
+        } catch (Exception e) {
+            // e.g. a malformed broker URL; handled below like any other failed attempt
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request
+                .handle((response, ex) -> {
+                    if (ex == null) {
+                        System.out.println("Notified broker " + broker + " about new leader: " + round.leader
+                                + (attempt > 0 ? " after " + attempt + " retries" : ""));
+                        round.acknowledged(true);
+                    } else if (round != currentRound) {
+                        System.out.println("Dropping leader notification for " + broker + ": a newer leader has been elected");
+                        round.acknowledged(false);
+                    } else if (attempt >= maxRetries) {
+                        System.out.println("Max retries reached for broker " + broker + ". Giving up on leader notification.");
+                        round.acknowledged(false);
+                    } else {
+                        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 20));
+                        System.err.println("Failed to notify broker " + broker + " about new leader: " + ex.getMessage()
+                                + ". Retrying in " + backoff + " ms");
+                        // Retries run outside the fan-out lanes so they don't block other brokers
+                        CompletableFuture.runAsync(() -> attempt(broker, round, attempt + 1),
+                                CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS));
+                    }
+                    return null;
+                });
+    }
+
+    private static final class NotificationRound {
+        private final String leader;
+        private final LamportClock clock;
+        private final int brokerCount;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger remaining;
+        private final AtomicInteger notified = new AtomicInteger();
+
+        NotificationRound(String leader, LamportClock clock, int brokerCount) {
+            this.leader = leader;
+            this.clock = clock;
+            this.brokerCount = brokerCount;
+            this.remaining = new AtomicInteger(brokerCount);
+        }
+
+        void acknowledged(boolean success) {
+            if (success) {
+                notified.incrementAndGet();
+            }
+            if (remaining.decrementAndGet() == 0) {
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                System.out.println("Leader change to " + leader + " propagated to " + notified.get() + "/" + brokerCount
+                        + " brokers in " + elapsedMs + " ms");
+            }
+        }
+    }
+}
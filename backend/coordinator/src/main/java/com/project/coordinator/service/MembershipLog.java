@@ -0,0 +1,243 @@
+package com.project.coordinator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.coordinator.model.CoordinatorData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of membership and leader changes, so a restarted coordinator
+ * comes back with the brokers and leader it had instead of an empty view.
+ *
+ * Each change is appended to membership.log as a checksummed record tagged with
+ * the membership epoch it produced. Appends are not forced to disk one by one;
+ * a background task fsyncs the log every fsync-interval-ms, so a crash loses at
+ * most that window. Every snapshot-every records the full state is written to
+ * membership.snapshot and the log is truncated. On startup the snapshot is
+ * loaded and log records with a newer epoch are replayed on top of it.
+ */
+@Service
+public class MembershipLog {
+
+    public enum Type { ADD_BROKER, REMOVE_BROKER, SET_LEADER }
+
+    /**
+     * One logged change. brokerUrl is the leader for SET_LEADER, null when there is none.
+     */
+    public record Entry(long epoch, Type type, String brokerUrl) {
+    }
+
+    /**
+     * What was found on disk at startup
+     */
+    public record Recovered(CoordinatorData snapshot, List<Entry> entries) {
+    }
+
+    // length (int) + crc (int) ahead of every record
+    private static final int HEADER_SIZE = 8;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${coordinator.wal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${coordinator.wal.dir:data/coordinator}")
+    private String dir;
+
+    @Value("${coordinator.wal.fsync-interval-ms:50}")
+    private long fsyncIntervalMs;
+
+    @Value("${coordinator.wal.snapshot-every:1000}")
+    private int snapshotEvery;
+
+    private Path logFile;
+    private Path snapshotFile;
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+    // Guarded by this
+    private boolean dirty = false;
+    private int entriesSinceSnapshot = 0;
+
+    public MembershipLog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path directory = Path.of(dir);
+        Files.createDirectories(directory);
+        logFile = directory.resolve("membership.log");
+        snapshotFile = directory.resolve("membership.snapshot");
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the snapshot and the log records written after it.
+     * A torn or corrupt record at the end of the log is cut off.
+     */
+    public synchronized Recovered recover() throws IOException {
+        if (!enabled) {
+            return new Recovered(null, List.of());
+        }
+        CoordinatorData snapshot = Files.exists(snapshotFile)
+                ? objectMapper.readValue(snapshotFile.toFile(), CoordinatorData.class)
+                : null;
+        long snapshotEpoch = snapshot == null ? 0 : snapshot.getEpoch();
+
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        buffer.flip();
+        long validLength = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload) != crc) {
+                break;
+            }
+            Entry entry = decode(payload);
+            // A crash between writing a snapshot and truncating the log leaves records the snapshot already covers
+            if (entry.epoch() > snapshotEpoch) {
+                entries.add(entry);
+            }
+            validLength = buffer.position();
+        }
+        if (validLength < channel.size()) {
+            System.err.println("Truncating membership log after " + validLength + " bytes of valid records");
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        entriesSinceSnapshot = entries.size();
+        return new Recovered(snapshot, entries);
+    }
+
+    /**
+     * Appends a change. Once enough changes have piled up, the given state is
+     * written as the new snapshot and the log starts over.
+     * @param entry   the change that was just applied
+     * @param current the membership after the change
+     */
+    public synchronized void append(Entry entry, MembershipTable.Snapshot current) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            byte[] payload = encode(entry);
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            dirty = true;
+            if (++entriesSinceSnapshot >= snapshotEvery) {
+                writeSnapshot(current);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write membership log", e);
+        }
+    }
+
+    private void writeSnapshot(MembershipTable.Snapshot current) throws IOException {
+        CoordinatorData data = new CoordinatorData();
+        data.setEpoch(current.epoch());
+        data.setBrokers(new ArrayList<>(current.brokers()));
+        data.setLeader(current.leader());
+
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(objectMapper.writeValueAsBytes(data));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        dirty = false;
+        entriesSinceSnapshot = 0;
+    }
+
+    /**
+     * Forces appended records to disk; runs every fsync-interval-ms so many appends share one fsync
+     */
+    private synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Failed to sync membership log: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        flush();
+        channel.close();
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(entry.epoch());
+        out.writeByte(entry.type().ordinal());
+        out.writeUTF(entry.brokerUrl() == null ? "" : entry.brokerUrl());
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long epoch = in.readLong();
+        Type type = Type.values()[in.readByte()];
+        String url = in.readUTF();
+        return new Entry(epoch, type, url.isEmpty() ? null : url);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,152 @@
+package com.project.coordinator.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The coordinator's view of which brokers are alive and which one leads.
+ *
+ * Lookups by broker URL are O(1) and lock free. Changes are serialized and each
+ * one publishes a new immutable snapshot with the next membership epoch, so
+ * readers always see a broker list, leader and epoch that belong together.
+ *
+ * Brokers are ranked once, when they join, so the highest-priority broker is
+ * known without rescanning the membership. Brokers also report when they hold
+ * a complete copy of the state; that readiness is not part of the snapshot
+ * since brokers never need to be told about it.
+ */
+public class MembershipTable {
+
+    /**
+     * Immutable view of the membership at one epoch
+     */
+    public record Snapshot(long epoch, List<String> brokers, String leader) {
+    }
+
+    /**
+     * Higher priority ranks first; among equal priorities the broker that joined first wins
+     */
+    private record Rank(int priority, long joinOrder) {
+        static final Comparator<Rank> ORDER = Comparator.comparingInt(Rank::priority)
+                .thenComparing(Comparator.comparingLong(Rank::joinOrder).reversed());
+    }
+
+    private final Set<String> members = ConcurrentHashMap.newKeySet();
+    private final Set<String> readyMembers = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot = new Snapshot(0, List.of(), null);
+    // Guarded by this
+    private final Map<String, Rank> ranks = new HashMap<>();
+    private final TreeMap<Rank, String> ranking = new TreeMap<>(Rank.ORDER);
+    private long joins = 0;
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public boolean contains(String brokerUrl) {
+        return members.contains(brokerUrl);
+    }
+
+    /**
+     * @param priority the broker's election priority, higher wins
+     * @return true if the broker was not a member before
+     */
+    public synchronized boolean add(String brokerUrl, int priority) {
+        if (!members.add(brokerUrl)) {
+            return false;
+        }
+        Rank rank = new Rank(priority, joins++);
+        ranks.put(brokerUrl, rank);
+        ranking.put(rank, brokerUrl);
+        List<String> brokers = new ArrayList<>(snapshot.brokers());
+        brokers.add(brokerUrl);
+        publish(brokers, snapshot.leader());
+        return true;
+    }
+
+    /**
+     * @return true if the broker was a member
+     */
+    public synchronized boolean remove(String brokerUrl) {
+        if (!members.remove(brokerUrl)) {
+            return false;
+        }
+        readyMembers.remove(brokerUrl);
+        ranking.remove(ranks.remove(brokerUrl));
+        List<String> brokers = new ArrayList<>(snapshot.brokers());
+        brokers.remove(brokerUrl);
+        publish(brokers, snapshot.leader());
+        return true;
+    }
+
+    /**
+     * Records that a member has caught up with the leader
+     * @return true if the member was not known to be ready before
+     */
+    public synchronized boolean markReady(String brokerUrl) {
+        return members.contains(brokerUrl) && readyMembers.add(brokerUrl);
+    }
+
+    /**
+     * Records that a member no longer has the leader's state, e.g. while it re-bootstraps
+     * @return true if the member was known to be ready before
+     */
+    public boolean markNotReady(String brokerUrl) {
+        return readyMembers.remove(brokerUrl);
+    }
+
+    public boolean isReady(String brokerUrl) {
+        return readyMembers.contains(brokerUrl);
+    }
+
+    /**
+     * @return the member with the highest priority, or null if there are none
+     */
+    public synchronized String highestRanked() {
+        return ranking.isEmpty() ? null : ranking.lastEntry().getValue();
+    }
+
+    /**
+     * Returns the broker that should lead: the highest-priority ready member. While
+     * no member is ready, as when the cluster first starts, every member is empty
+     * alike and the highest-priority one is returned.
+     * @return the broker to elect, or null if there are no members
+     */
+    public synchronized String electable() {
+        for (String brokerUrl : ranking.descendingMap().values()) {
+            if (readyMembers.contains(brokerUrl)) {
+                return brokerUrl;
+            }
+        }
+        return highestRanked();
+    }
+
+    /**
+     * @return true if the leader changed
+     */
+    public synchronized boolean setLeader(String leader) {
+        if (Objects.equals(leader, snapshot.leader())) {
+            return false;
+        }
+        publish(snapshot.brokers(), leader);
+        return true;
+    }
+
+    /**
+     * Overrides the epoch; only used while replaying persisted state
+     */
+    synchronized void restoreEpoch(long epoch) {
+        snapshot = new Snapshot(epoch, snapshot.brokers(), snapshot.leader());
+    }
+
+    private void publish(List<String> brokers, String leader) {
+        snapshot = new Snapshot(snapshot.epoch() + 1, List.copyOf(brokers), leader);
+    }
+}
@@ -0,0 +1,146 @@
+package com.project.coordinator.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Phi accrual failure detector (Hayashibara et al.).
+ *
+ * For each broker it keeps a window of recent heartbeat inter-arrival times and
+ * models them as a normal distribution. phi is the -log10 probability that a
+ * heartbeat is still coming after the time that has passed, and a broker is
+ * suspected once phi reaches the threshold. Brokers with steady heartbeats are
+ * therefore detected soon after they stop, while jittery ones get more slack.
+ */
+public class PhiAccrualFailureDetector implements FailureDetector {
+
+    private final double threshold;
+    private final int maxSampleSize;
+    private final double minStdDeviationMs;
+    private final long acceptablePauseMs;
+    private final long firstHeartbeatEstimateMs;
+    private final long maxTimeoutMs;
+    private final Map<String, HeartbeatHistory> histories = new ConcurrentHashMap<>();
+
+    /**
+     * @param threshold                phi value at which a broker is suspected
+     * @param maxSampleSize            number of inter-arrival times kept per broker
+     * @param minStdDeviationMs        lower bound on the standard deviation, so very regular heartbeats still get some slack
+     * @param acceptablePauseMs        extra time added to the mean to tolerate pauses such as GC
+     * @param firstHeartbeatEstimateMs expected heartbeat interval, used until real samples arrive
+     * @param maxTimeoutMs             upper bound on the time a silent broker is given
+     */
+    public PhiAccrualFailureDetector(double threshold, int maxSampleSize, double minStdDeviationMs,
+                                     long acceptablePauseMs, long firstHeartbeatEstimateMs, long maxTimeoutMs) {
+        this.threshold = threshold;
+        this.maxSampleSize = maxSampleSize;
+        this.minStdDeviationMs = minStdDeviationMs;
+        this.acceptablePauseMs = acceptablePauseMs;
+        this.firstHeartbeatEstimateMs = firstHeartbeatEstimateMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+    }
+
+    @Override
+    public void heartbeat(String brokerUrl, long nowMillis) {
+        histories.computeIfAbsent(brokerUrl, k -> new HeartbeatHistory()).record(nowMillis);
+    }
+
+    @Override
+    public void expect(String brokerUrl, long deadlineMillis) {
+        histories.computeIfAbsent(brokerUrl, k -> new HeartbeatHistory()).expect(deadlineMillis);
+    }
+
+    @Override
+    public long suspectAt(String brokerUrl) {
+        HeartbeatHistory history = histories.get(brokerUrl);
+        return history == null ? Long.MIN_VALUE : history.suspectAt();
+    }
+
+    @Override
+    public void remove(String brokerUrl) {
+        histories.remove(brokerUrl);
+    }
+
+    /**
+     * phi for a given time since the last heartbeat, using the logistic
+     * approximation of the normal CDF
+     */
+    static double phi(double elapsedMs, double meanMs, double stdDeviationMs) {
+        double y = (elapsedMs - meanMs) / stdDeviationMs;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsedMs > meanMs) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    private final class HeartbeatHistory {
+        private final Deque<Long> intervals = new ArrayDeque<>();
+        private long lastHeartbeat = -1;
+        private double sum = 0;
+        private double sumOfSquares = 0;
+        private long suspectAt;
+
+        synchronized void record(long nowMillis) {
+            if (lastHeartbeat < 0) {
+                // Seed the window with the expected interval so the first deadline is sensible
+                add(firstHeartbeatEstimateMs);
+                add(firstHeartbeatEstimateMs);
+            } else {
+                add(nowMillis - lastHeartbeat);
+            }
+            lastHeartbeat = nowMillis;
+            suspectAt = lastHeartbeat + timeToThreshold();
+        }
+
+        synchronized void expect(long deadlineMillis) {
+            // A broker already heard from keeps the deadline its heartbeats give it
+            if (lastHeartbeat < 0) {
+                suspectAt = deadlineMillis;
+            }
+        }
+
+        synchronized long suspectAt() {
+            return suspectAt;
+        }
+
+        private void add(long interval) {
+            intervals.addLast(interval);
+            sum += interval;
+            sumOfSquares += (double) interval * interval;
+            if (intervals.size() > maxSampleSize) {
+                long dropped = intervals.removeFirst();
+                sum -= dropped;
+                sumOfSquares -= (double) dropped * dropped;
+            }
+        }
+
+        /**
+         * Finds how long after the last heartbeat phi reaches the threshold.
+         * phi grows with elapsed time, so a binary search converges quickly.
+         */
+        private long timeToThreshold() {
+            int n = intervals.size();
+            double mean = sum / n + acceptablePauseMs;
+            double variance = Math.max(0, sumOfSquares / n - (sum / n) * (sum / n));
+            double stdDeviation = Math.max(Math.sqrt(variance), minStdDeviationMs);
+
+            if (phi(maxTimeoutMs, mean, stdDeviation) < threshold) {
+                return maxTimeoutMs;
+            }
+            long low = 0;
+            long high = maxTimeoutMs;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (phi(mid, mean, stdDeviation) >= threshold) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.project.coordinator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.coordinator.model.CoordinatorData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MembershipLogTest {
+
+    private static final String BROKER_A = "http://localhost:8081";
+    private static final String BROKER_B = "http://localhost:8082";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<MembershipLog> opened = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void closeLogs() throws IOException {
+        for (MembershipLog log : opened) {
+            log.close();
+        }
+    }
+
+    @Test
+    void replaysEveryAppendedChange() throws IOException {
+        MembershipLog log = open(1000);
+        log.recover();
+        log.append(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A), state(1));
+        log.append(new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A), state(2));
+        log.append(new MembershipLog.Entry(3, MembershipLog.Type.SET_LEADER, null), state(3));
+        log.close();
+        opened.remove(log);
+
+        MembershipLog.Recovered recovered = open(1000).recover();
+        assertNull(recovered.snapshot());
+        assertEquals(List.of(
+                new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A),
+                new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A),
+                new MembershipLog.Entry(3, MembershipLog.Type.SET_LEADER, null)), recovered.entries());
+    }
+
+    @Test
+    void truncatedRecordIsCutOffAndLaterAppendsSurvive() throws IOException {
+        MembershipLog log = open(1000);
+        log.recover();
+        log.append(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A), state(1));
+        log.append(new MembershipLog.Entry(2, MembershipLog.Type.ADD_BROKER, BROKER_B), state(2));
+        log.close();
+        opened.remove(log);
+        // A crash in the middle of the second record
+        Path logFile = dir.resolve("membership.log");
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        MembershipLog reopened = open(1000);
+        assertEquals(List.of(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A)),
+                reopened.recover().entries());
+        reopened.append(new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A), state(2));
+        reopened.close();
+        opened.remove(reopened);
+
+        assertEquals(List.of(
+                new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A),
+                new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A)), open(1000).recover().entries());
+    }
+
+    @Test
+    void corruptRecordEndsTheReplay() throws IOException {
+        MembershipLog log = open(1000);
+        log.recover();
+        log.append(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A), state(1));
+        log.append(new MembershipLog.Entry(2, MembershipLog.Type.ADD_BROKER, BROKER_B), state(2));
+        log.append(new MembershipLog.Entry(3, MembershipLog.Type.SET_LEADER, BROKER_B), state(3));
+        log.close();
+        opened.remove(log);
+        // Flip the last byte of the second record's payload
+        Path logFile = dir.resolve("membership.log");
+        byte[] bytes = Files.readAllBytes(logFile);
+        int recordSize = bytes.length / 3;
+        bytes[2 * recordSize - 1] ^= 0x01;
+        Files.write(logFile, bytes);
+
+        assertEquals(List.of(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A)),
+                open(1000).recover().entries());
+    }
+
+    @Test
+    void replaysOnlyChangesAfterTheSnapshot() throws IOException {
+        MembershipLog log = open(2);
+        log.recover();
+        log.append(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A), state(1, BROKER_A));
+        // The second change triggers a snapshot of the state after it and truncates the log
+        log.append(new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A), state(2, BROKER_A));
+        log.append(new MembershipLog.Entry(3, MembershipLog.Type.ADD_BROKER, BROKER_B), state(3, BROKER_A, BROKER_B));
+        log.close();
+        opened.remove(log);
+
+        MembershipLog.Recovered recovered = open(2).recover();
+        assertNotNull(recovered.snapshot());
+        assertEquals(2, recovered.snapshot().getEpoch());
+        assertEquals(List.of(BROKER_A), recovered.snapshot().getBrokers());
+        assertEquals(BROKER_A, recovered.snapshot().getLeader());
+        assertEquals(List.of(new MembershipLog.Entry(3, MembershipLog.Type.ADD_BROKER, BROKER_B)), recovered.entries());
+    }
+
+    @Test
+    void skipsRecordsTheSnapshotAlreadyCovers() throws IOException {
+        MembershipLog log = open(1000);
+        log.recover();
+        log.append(new MembershipLog.Entry(1, MembershipLog.Type.ADD_BROKER, BROKER_A), state(1));
+        log.append(new MembershipLog.Entry(2, MembershipLog.Type.SET_LEADER, BROKER_A), state(2));
+        log.append(new MembershipLog.Entry(3, MembershipLog.Type.ADD_BROKER, BROKER_B), state(3));
+        log.close();
+        opened.remove(log);
+        // A crash after the snapshot was written but before the log was truncated
+        CoordinatorData snapshot = new CoordinatorData();
+        snapshot.setEpoch(2);
+        snapshot.setBrokers(new ArrayList<>(List.of(BROKER_A)));
+        snapshot.setLeader(BROKER_A);
+        objectMapper.writeValue(dir.resolve("membership.snapshot").toFile(), snapshot);
+
+        MembershipLog.Recovered recovered = open(1000).recover();
+        assertEquals(2, recovered.snapshot().getEpoch());
+        assertEquals(List.of(new MembershipLog.Entry(3, MembershipLog.Type.ADD_BROKER, BROKER_B)), recovered.entries());
+    }
+
+    private MembershipLog open(int snapshotEvery) throws IOException {
+        MembershipLog log = new MembershipLog(objectMapper);
+        ReflectionTestUtils.setField(log, "enabled", true);
+        ReflectionTestUtils.setField(log, "dir", dir.toString());
+        ReflectionTestUtils.setField(log, "fsyncIntervalMs", 50L);
+        ReflectionTestUtils.setField(log, "snapshotEvery", snapshotEvery);
+        log.open();
+        opened.add(log);
+        return log;
+    }
+
+    private static MembershipTable.Snapshot state(long epoch, String... brokers) {
+        return new MembershipTable.Snapshot(epoch, List.of(brokers), brokers.length == 0 ? null : brokers[0]);
+    }
+}
@@ -23,11 +23,6 @@ public class PublisherApplication {
 		SpringApplication.run(PublisherApplication.class, args);
 	}
 
-	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
-
 	@EventListener
 	public void onWebServerInitialized(WebServerInitializedEvent event) {
 		this.port = event.getWebServer().getPort();
@@ -1,9 +1,13 @@
 package com.project.publisher.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.project.publisher.model.PublishAck;
 import com.project.publisher.service.PublisherService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -19,10 +23,14 @@ public class PublisherApiController {
         return publisherService.getTopics();
     }
 
+    /**
+     * Creates a poll topic; partitions and replicationFactor fall back to the publisher's defaults
+     */
     @PostMapping("/create-topic")
-    public void createTopic(@RequestBody String topic, @RequestParam long timestamp) {
+    public void createTopic(@RequestBody String topic, @RequestParam(required = false) Integer partitions,
+                            @RequestParam(required = false) Short replicationFactor, @RequestParam long timestamp) {
         publisherService.updateClock(timestamp);
-        publisherService.createTopic(topic);
+        publisherService.createTopic(topic, partitions, replicationFactor);
     }
 
     @PostMapping("/publish")
@@ -31,6 +39,34 @@ public class PublisherApiController {
         publisherService.publishMessage(topic, message);
     }
 
+    /**
+     * Publishes a JSON array of votes; each element is sent as its own message
+     */
+    @PostMapping(value = "/publish-batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<PublishAck> publishMessages(@RequestParam String topic, @RequestBody List<JsonNode> votes, @RequestParam long timestamp) {
+        publisherService.updateClock(timestamp);
+        List<String> messages = new ArrayList<>(votes.size());
+        for (JsonNode vote : votes) {
+            messages.add(vote.isTextual() ? vote.asText() : vote.toString());
+        }
+        return publisherService.publishMessages(topic, messages);
+    }
+
+    /**
+     * Publishes newline-delimited votes; each non-blank line is sent as its own message
+     */
+    @PostMapping(value = "/publish-batch", consumes = "application/x-ndjson")
+    public List<PublishAck> publishMessagesNdjson(@RequestParam String topic, @RequestBody String body, @RequestParam long timestamp) {
+        publisherService.updateClock(timestamp);
+        List<String> messages = new ArrayList<>();
+        for (String line : body.split("\\r?\\n")) {
+            if (!line.isBlank()) {
+                messages.add(line.trim());
+            }
+        }
+        return publisherService.publishMessages(topic, messages);
+    }
+
     @GetMapping("/leader-broker")
     public String getLeaderBroker(@RequestParam long timestamp) {
         publisherService.updateClock(timestamp);
@@ -32,9 +32,11 @@ public class PublisherThymeleafController {
     }
 
     @PostMapping("/create-topic")
-    public String createTopic(@RequestParam String topic, @RequestParam(required = false, defaultValue = "0") long timestamp) {
+    public String createTopic(@RequestParam String topic, @RequestParam(required = false) Integer partitions,
+                              @RequestParam(required = false) Short replicationFactor,
+                              @RequestParam(required = false, defaultValue = "0") long timestamp) {
         publisherService.updateClock(timestamp);
-        publisherService.createTopic(topic);
+        publisherService.createTopic(topic, partitions, replicationFactor);
         return "redirect:/?timestamp=" + publisherService.getLogicalClock();
     }
 
@@ -0,0 +1,51 @@
+package com.project.publisher.model;
+
+/**
+ * Acknowledgement for one vote of a batch publish request.
+ * Successful votes carry the Kafka partition and offset they were written to,
+ * failed votes carry the error message.
+ */
+public class PublishAck {
+
+    private final int index;
+    private final boolean success;
+    private final Integer partition;
+    private final Long offset;
+    private final String error;
+
+    private PublishAck(int index, boolean success, Integer partition, Long offset, String error) {
+        this.index = index;
+        this.success = success;
+        this.partition = partition;
+        this.offset = offset;
+        this.error = error;
+    }
+
+    public static PublishAck success(int index, int partition, long offset) {
+        return new PublishAck(index, true, partition, offset, null);
+    }
+
+    public static PublishAck failure(int index, String error) {
+        return new PublishAck(index, false, null, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Integer getPartition() {
+        return partition;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
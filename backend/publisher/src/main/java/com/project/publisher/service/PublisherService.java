@@ -1,7 +1,10 @@
 package com.project.publisher.service;
 
+import com.project.publisher.model.PublishAck;
+import com.project.publisher.model.VoteKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -15,7 +18,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class PublisherService {
@@ -30,9 +36,22 @@ public class PublisherService {
     @Value("${server.port}")
     private int port;
 
+    @Value("${publisher.batch.ack-timeout-ms:30000}")
+    private long batchAckTimeoutMs;
+
+    // Used when a poll is created without its own settings
+    @Value("${publisher.topic.partitions:6}")
+    private int defaultPartitions;
+
+    @Value("${publisher.topic.replication-factor:1}")
+    private short defaultReplicationFactor;
+
+    @Value("${publisher.kafka.key-by-voter:true}")
+    private boolean keyByVoter;
+
     private String leaderBroker;
     private List<String> topics = new ArrayList<>();
-    private long logicalClock = 0;
+    private final LamportClock clock = new LamportClock();
 
     public PublisherService(RestTemplate restTemplate, 
                            KafkaTemplate<String, String> kafkaTemplate,
@@ -52,7 +71,7 @@ public class PublisherService {
     public void updateLeaderBroker() {
         incrementClock();
         try {
-            this.leaderBroker = restTemplate.getForObject(coordinatorUrl + "/api/leader?timestamp=" + logicalClock, String.class);
+            this.leaderBroker = restTemplate.getForObject(coordinatorUrl + "/api/leader?timestamp=" + clock.get(), String.class);
             System.out.println("Updated leader broker: " + leaderBroker);
         } catch (Exception e) {
             e.printStackTrace();
@@ -74,15 +93,22 @@ public class PublisherService {
         }
     }
 
-    public void createTopic(String topic) {
+    /**
+     * Creates a Kafka topic for a poll
+     * @param partitions        number of partitions, or null for publisher.topic.partitions
+     * @param replicationFactor replicas per partition, or null for publisher.topic.replication-factor
+     */
+    public void createTopic(String topic, Integer partitions, Short replicationFactor) {
         incrementClock();
         try {
             // Create a new Kafka topic
-            NewTopic newTopic = new NewTopic(topic, 1, (short) 1);
+            int partitionCount = partitions != null ? partitions : defaultPartitions;
+            short replicas = replicationFactor != null ? replicationFactor : defaultReplicationFactor;
+            NewTopic newTopic = new NewTopic(topic, partitionCount, replicas);
             adminClient.createTopics(Collections.singleton(newTopic)).all().get();
             // Force a sync after creating a topic
             syncTopics();
-            System.out.println("Created Kafka topic: " + topic);
+            System.out.println("Created Kafka topic: " + topic + " with " + partitionCount + " partitions, replication factor " + replicas);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -92,13 +118,69 @@ public class PublisherService {
         incrementClock();
         try {
             // Send message to Kafka topic
-            kafkaTemplate.send(topic, message);
+            kafkaTemplate.send(topic, messageKey(message), message).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    System.err.println("Failed to publish message to Kafka topic " + topic + ": " + ex.getMessage());
+                }
+            });
             System.out.println("Published message to Kafka topic " + topic + ": " + message);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Publishes a batch of messages to a topic and waits for Kafka to acknowledge them.
+     * All messages are handed to the producer before waiting on any of them, so they are
+     * sent in as few producer batches as the batching settings allow.
+     * @return one acknowledgement per message, in request order
+     */
+    public List<PublishAck> publishMessages(String topic, List<String> messages) {
+        incrementClock();
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            try {
+                futures.add(kafkaTemplate.send(topic, messageKey(message), message));
+            } catch (Exception e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        kafkaTemplate.flush();
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(batchAckTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Timed out waiting for Kafka to acknowledge batch for topic " + topic);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Individual failures are reported per message below
+        }
+
+        List<PublishAck> acks = new ArrayList<>(futures.size());
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<SendResult<String, String>> future = futures.get(i);
+            if (!future.isDone()) {
+                acks.add(PublishAck.failure(i, "Timed out waiting for acknowledgement"));
+                failed++;
+            } else if (future.isCompletedExceptionally()) {
+                Throwable cause = future.exceptionNow();
+                acks.add(PublishAck.failure(i, cause.getMessage()));
+                failed++;
+            } else {
+                SendResult<String, String> result = future.resultNow();
+                acks.add(PublishAck.success(i, result.getRecordMetadata().partition(), result.getRecordMetadata().offset()));
+            }
+        }
+        System.out.println("Published batch of " + messages.size() + " messages to Kafka topic " + topic + " (" + failed + " failed)");
+        return acks;
+    }
+
+    private String messageKey(String message) {
+        return keyByVoter ? VoteKey.of(message) : null;
+    }
+
     public List<String> getTopics() {
         incrementClock();
         // Return the cached topics list
@@ -126,15 +208,15 @@ public class PublisherService {
         return leaderBroker;
     }
 
-    private synchronized void incrementClock() {
-        logicalClock++;
+    private void incrementClock() {
+        clock.tick();
     }
 
-    public synchronized void updateClock(long receivedTimestamp) {
-        logicalClock = Math.max(logicalClock, receivedTimestamp) + 1;
+    public void updateClock(long receivedTimestamp) {
+        clock.update(receivedTimestamp);
     }
 
-    public synchronized long getLogicalClock() {
-        return logicalClock;
+    public long getLogicalClock() {
+        return clock.get();
     }
 } 
\ No newline at end of file
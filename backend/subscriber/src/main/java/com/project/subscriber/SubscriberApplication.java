@@ -1,6 +1,9 @@
 package com.project.subscriber;
 
+import com.project.subscriber.client.InterNodeClient;
+import com.project.subscriber.service.CheckpointStore;
 import com.project.subscriber.service.SubscriberService;
+import com.project.subscriber.service.TopicReplayer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -8,8 +11,8 @@ import org.springframework.boot.web.context.WebServerInitializedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
 import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,11 +30,6 @@ public class SubscriberApplication {
 		SpringApplication.run(SubscriberApplication.class, args);
 	}
 
-	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
-
 	@EventListener
 	public void onWebServerInitialized(WebServerInitializedEvent event) {
 		this.port = event.getWebServer().getPort();
@@ -39,10 +37,14 @@ public class SubscriberApplication {
 	}
 
 	@Bean
-	public SubscriberService subscriberService(RestTemplate restTemplate,
+	public SubscriberService subscriberService(InterNodeClient interNodeClient,
 											 AdminClient adminClient,
-											 KafkaListenerEndpointRegistry kafkaListenerRegistry) {
-		SubscriberService subscriberService = new SubscriberService(restTemplate, adminClient, kafkaListenerRegistry);
+											 KafkaListenerEndpointRegistry kafkaListenerRegistry,
+											 KafkaListenerContainerFactory<?> kafkaListenerContainerFactory,
+											 CheckpointStore checkpointStore,
+											 TopicReplayer topicReplayer) {
+		SubscriberService subscriberService = new SubscriberService(interNodeClient, adminClient, kafkaListenerRegistry,
+				kafkaListenerContainerFactory, checkpointStore, topicReplayer);
 		subscriberService.setPort(port);
 		return subscriberService;
 	}
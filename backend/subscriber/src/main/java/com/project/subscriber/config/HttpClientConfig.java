@@ -0,0 +1,27 @@
+package com.project.subscriber.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${internode.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    /**
+     * Shared client for calls to other nodes. It keeps connections alive and
+     * reuses them across requests, and supports asynchronous sends.
+     */
+    @Bean
+    public HttpClient interNodeHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.project.subscriber.config;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -24,6 +25,22 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    // When shared, subscribers join one consumer group and each consumes a subset of the partitions.
+    // Every topic's container is then a member of that one group, so subscribing to or dropping a
+    // topic on any subscriber rebalances the whole group, across all of its topics
+    @Value("${subscriber.group.shared:false}")
+    private boolean sharedGroup;
+
+    @Value("${subscriber.group.id:subscriber-group}")
+    private String sharedGroupId;
+
+    // Number of consumer threads; only useful up to the number of partitions being consumed
+    @Value("${subscriber.kafka.concurrency:1}")
+    private int concurrency;
+
+    @Value("${subscriber.kafka.max-poll-records:500}")
+    private int maxPollRecords;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -42,10 +59,14 @@ public class KafkaConfig {
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, sharedGroup ? sharedGroupId : groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Members joining or leaving only move the partitions that have to move, and the
+        // other members keep consuming theirs during the rebalance
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
@@ -53,6 +74,14 @@ public class KafkaConfig {
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // Listeners receive every record returned by a poll as one list
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        if (!sharedGroup) {
+            // Each topic's container gets a group of its own, so starting or stopping one never rebalances the others
+            factory.setContainerCustomizer(container -> container.getContainerProperties()
+                    .setGroupId(groupId + "-" + container.getContainerProperties().getTopics()[0]));
+        }
         return factory;
     }
 } 
\ No newline at end of file
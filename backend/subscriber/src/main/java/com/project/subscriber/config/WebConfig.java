@@ -1,5 +1,6 @@
 package com.project.subscriber.config;
 
+import com.project.subscriber.service.ResultsGatherer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -17,6 +18,7 @@ public class WebConfig implements WebMvcConfigurer {
                         .allowedOrigins("*")  // Allow any origin
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders(ResultsGatherer.MISSING_PEERS_HEADER)
                         .maxAge(3600);
             }
         };
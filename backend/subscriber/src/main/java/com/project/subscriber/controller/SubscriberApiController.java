@@ -1,13 +1,22 @@
 package com.project.subscriber.controller;
 
+import com.project.subscriber.model.MessageDelta;
+import com.project.subscriber.service.ResultsGatherer;
+import com.project.subscriber.service.ResultsPushService;
 import com.project.subscriber.service.SubscriberService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -18,6 +27,12 @@ public class SubscriberApiController {
     @Autowired
     private SubscriberService subscriberService;
 
+    @Autowired
+    private ResultsPushService resultsPushService;
+
+    @Autowired
+    private ResultsGatherer resultsGatherer;
+
     @GetMapping("/topics")
     public List<String> getTopics(@RequestParam long timestamp) {
         subscriberService.updateClock(timestamp);
@@ -45,6 +60,50 @@ public class SubscriberApiController {
         return messages;
     }
 
+    @GetMapping("/messages/{topic}/delta")
+    public MessageDelta getMessagesSince(@PathVariable String topic,
+                                         @RequestParam(required = false, defaultValue = "") String cursor,
+                                         @RequestParam long timestamp) {
+        subscriberService.updateClock(timestamp);
+        try {
+            return subscriberService.getMessagesSince(topic, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Vote counts for a topic across the group. Completes asynchronously once the peers
+     * have answered; peers left out are listed in the X-Missing-Peers header.
+     */
+    @GetMapping("/results/{topic}")
+    public CompletableFuture<ResponseEntity<Map<String, Long>>> getResultsForTopic(@PathVariable String topic, @RequestParam long timestamp) {
+        subscriberService.updateClock(timestamp);
+        return resultsGatherer.gatherResults(topic).thenApply(results -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (results.isPartial()) {
+                response.header(ResultsGatherer.MISSING_PEERS_HEADER, String.join(",", results.missingPeers()));
+            }
+            return response.body(results.counts());
+        });
+    }
+
+    /**
+     * This subscriber's own vote counts per partition, gathered by peers in a shared consumer group
+     */
+    @GetMapping("/results/{topic}/partitions")
+    public Map<Integer, Map<String, Long>> getPartitionResultsForTopic(@PathVariable String topic, @RequestParam long timestamp) {
+        subscriberService.updateClock(timestamp);
+        return subscriberService.getPartitionResults(topic);
+    }
+
+    @GetMapping(value = "/results/{topic}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamResultsForTopic(@PathVariable String topic, @RequestParam long timestamp) {
+        logger.info("Received STREAM RESULTS request for topic: {}, timestamp: {}", topic, timestamp);
+        subscriberService.updateClock(timestamp);
+        return resultsPushService.subscribe(topic);
+    }
+
     @GetMapping("/refresh-messages/{topic}")
     public List<String> refreshMessagesForTopic(@PathVariable String topic, @RequestParam long timestamp) {
         logger.info("Received REFRESH MESSAGES request for topic: {}, timestamp: {}", topic, timestamp);
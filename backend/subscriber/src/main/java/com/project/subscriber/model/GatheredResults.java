@@ -0,0 +1,22 @@
+package com.project.subscriber.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vote counts per option for a topic, and the peers whose counts they are missing
+ * because those peers did not answer in time
+ */
+public record GatheredResults(Map<String, Long> counts, List<String> missingPeers) {
+
+    /**
+     * Counts that cover every vote this subscriber knows of
+     */
+    public static GatheredResults complete(Map<String, Long> counts) {
+        return new GatheredResults(counts, List.of());
+    }
+
+    public boolean isPartial() {
+        return !missingPeers.isEmpty();
+    }
+}
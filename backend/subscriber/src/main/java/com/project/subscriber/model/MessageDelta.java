@@ -0,0 +1,51 @@
+package com.project.subscriber.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Messages received after a cursor, and the cursor to resume from.
+ * Cursors are written as comma separated partition:offset pairs, e.g. "0:42,1:17",
+ * where each offset is the next one to read from that partition.
+ */
+public class MessageDelta {
+
+    private final List<String> messages;
+    private final Map<Integer, Long> nextOffsets;
+
+    public MessageDelta(List<String> messages, Map<Integer, Long> nextOffsets) {
+        this.messages = messages;
+        this.nextOffsets = nextOffsets;
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public String getCursor() {
+        return formatCursor(nextOffsets);
+    }
+
+    public static Map<Integer, Long> parseCursor(String cursor) {
+        Map<Integer, Long> offsets = new TreeMap<>();
+        if (cursor == null || cursor.isBlank()) {
+            return offsets;
+        }
+        for (String pair : cursor.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor entry: " + pair);
+            }
+            offsets.put(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        }
+        return offsets;
+    }
+
+    public static String formatCursor(Map<Integer, Long> offsets) {
+        StringJoiner joiner = new StringJoiner(",");
+        new TreeMap<>(offsets).forEach((partition, offset) -> joiner.add(partition + ":" + offset));
+        return joiner.toString();
+    }
+}
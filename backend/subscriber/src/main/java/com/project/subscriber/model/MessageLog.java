@@ -0,0 +1,345 @@
+package com.project.subscriber.model;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only, bounded store of the messages received for one topic.
+ *
+ * Messages are kept in fixed-size segments of encoded bytes rather than as
+ * individual Strings. Votes in the frontend's {"name","vote"} format are stored
+ * as an index into a per-topic option dictionary plus the voter name; anything
+ * else is stored verbatim. Each entry also records the Kafka partition and
+ * offset it was read from, so clients can ask for only the entries after a
+ * cursor. When the retention limits are exceeded the oldest segments are dropped.
+ *
+ * Writes are serialized on the log. Readers never lock: they take a snapshot of
+ * the published segment array and entry counts and decode entries on access.
+ */
+public class MessageLog {
+
+    private static final int RAW_MESSAGE = 0;
+    private static final int INITIAL_SEGMENT_BYTES = 4096;
+
+    private final int segmentCapacity;
+    private final long maxMessages;
+    private final long maxBytes;
+
+    private final Map<String, Integer> optionIds = new HashMap<>();
+    private volatile String[] options = new String[0];
+    private volatile Segment[] segments;
+    private long retainedBytes = 0;
+    // Highest offset appended so far for each partition, owned by the writer
+    private final Map<Integer, Long> highWatermarks = new HashMap<>();
+
+    /**
+     * @param segmentCapacity number of messages per segment
+     * @param maxMessages     retention limit in messages, or 0 for no limit
+     * @param maxBytes        retention limit in encoded bytes, or 0 for no limit
+     */
+    public MessageLog(int segmentCapacity, long maxMessages, long maxBytes) {
+        if (segmentCapacity <= 0) {
+            throw new IllegalArgumentException("Segment capacity must be positive: " + segmentCapacity);
+        }
+        this.segmentCapacity = segmentCapacity;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.segments = new Segment[] { new Segment(segmentCapacity) };
+    }
+
+    /**
+     * Appends a batch of records to the log, taking the write lock and applying
+     * retention once for the whole batch
+     * @param records the records in the order they were consumed
+     * @param votes   the parsed vote of each record, or null where the record is not a vote
+     */
+    public synchronized void appendAll(List<ConsumerRecord<String, String>> records, List<Vote> votes) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            append(record.value(), votes.get(i), record.partition(), record.offset());
+        }
+        enforceRetention();
+    }
+
+    private void append(String message, Vote vote, int partition, long offset) {
+        byte[] encoded;
+        // Only use the compact form when it decodes back to exactly the same message
+        if (vote != null && vote.toMessage().equals(message)) {
+            encoded = encode(optionId(vote.option()), vote.name());
+        } else {
+            encoded = encode(RAW_MESSAGE, message);
+        }
+
+        Segment[] current = segments;
+        Segment tail = current[current.length - 1];
+        if (tail.count == segmentCapacity) {
+            // Sealed segments carry the watermarks as of their last entry
+            tail.sealedHighWatermarks = new HashMap<>(highWatermarks);
+            tail = new Segment(segmentCapacity);
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = tail;
+            segments = current;
+        }
+        tail.append(encoded, partition, offset);
+        retainedBytes += encoded.length;
+        highWatermarks.merge(partition, offset, Math::max);
+    }
+
+    /**
+     * Returns a read-only view of the retained messages as of this call.
+     * Messages are decoded lazily, so the view is cheap to create.
+     */
+    public List<String> getMessages() {
+        Segment[] snapshot = segments;
+        int tailCount = snapshot[snapshot.length - 1].count;
+        int size = (snapshot.length - 1) * segmentCapacity + tailCount;
+        return new SegmentView<>(snapshot, options, size, Segment::get);
+    }
+
+    /**
+     * Returns a read-only view of the retained entries as of this call, with the
+     * partition and offset each was read from. Decoded lazily like getMessages.
+     */
+    public List<Entry> getEntries() {
+        Segment[] snapshot = segments;
+        int tailCount = snapshot[snapshot.length - 1].count;
+        int size = (snapshot.length - 1) * segmentCapacity + tailCount;
+        return new SegmentView<>(snapshot, options, size,
+                (segment, index, optionSnapshot) -> new Entry(segment.partitions[index], segment.offsets[index],
+                        segment.get(index, optionSnapshot)));
+    }
+
+    /**
+     * Returns the retained messages that come after a cursor, plus the cursor to
+     * pass on the next call.
+     * @param cursor next offset to read for each partition; partitions that are
+     *               missing are read from the oldest retained message
+     */
+    public MessageDelta readSince(Map<Integer, Long> cursor) {
+        Segment[] snapshot = segments;
+        int lastSegment = snapshot.length - 1;
+        int tailCount = snapshot[lastSegment].count;
+        // Taken after the count, so it holds every option an entry below the count refers to
+        String[] optionSnapshot = options;
+
+        // Sealed segments whose watermarks are all behind the cursor hold nothing new,
+        // and since watermarks only grow that is true for a prefix of the segments
+        int low = 0;
+        int high = lastSegment;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (isBehind(snapshot[mid].sealedHighWatermarks, cursor)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<String> messages = new ArrayList<>();
+        Map<Integer, Long> nextCursor = new HashMap<>(cursor);
+        for (int i = low; i <= lastSegment; i++) {
+            Segment segment = snapshot[i];
+            int count = i == lastSegment ? tailCount : segmentCapacity;
+            for (int j = 0; j < count; j++) {
+                int partition = segment.partitions[j];
+                long offset = segment.offsets[j];
+                Long next = cursor.get(partition);
+                if (next == null || offset >= next) {
+                    messages.add(segment.get(j, optionSnapshot));
+                    nextCursor.merge(partition, offset + 1, Math::max);
+                }
+            }
+        }
+        return new MessageDelta(messages, nextCursor);
+    }
+
+    private static boolean isBehind(Map<Integer, Long> watermarks, Map<Integer, Long> cursor) {
+        if (watermarks == null) {
+            return false;
+        }
+        for (Map.Entry<Integer, Long> entry : watermarks.entrySet()) {
+            Long next = cursor.get(entry.getKey());
+            if (next == null || entry.getValue() >= next) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        Segment[] snapshot = segments;
+        return (snapshot.length - 1) * segmentCapacity + snapshot[snapshot.length - 1].count;
+    }
+
+    private void enforceRetention() {
+        Segment[] current = segments;
+        int drop = 0;
+        long count = size();
+        long bytes = retainedBytes;
+        // Always keep the segment being written to
+        while (drop < current.length - 1
+                && ((maxMessages > 0 && count > maxMessages) || (maxBytes > 0 && bytes > maxBytes))) {
+            count -= current[drop].count;
+            bytes -= current[drop].size();
+            drop++;
+        }
+        if (drop > 0) {
+            segments = Arrays.copyOfRange(current, drop, current.length);
+            retainedBytes = bytes;
+        }
+    }
+
+    private int optionId(String option) {
+        Integer id = optionIds.get(option);
+        if (id == null) {
+            String[] updated = Arrays.copyOf(options, options.length + 1);
+            updated[updated.length - 1] = option;
+            options = updated;
+            id = updated.length;
+            optionIds.put(option, id);
+        }
+        return id;
+    }
+
+    private static byte[] encode(int optionId, String text) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[varIntSize(optionId) + textBytes.length];
+        int pos = writeVarInt(encoded, 0, optionId);
+        System.arraycopy(textBytes, 0, encoded, pos, textBytes.length);
+        return encoded;
+    }
+
+    private static String decode(byte[] data, int start, int end, String[] options) {
+        int optionId = 0;
+        int shift = 0;
+        int pos = start;
+        byte b;
+        do {
+            b = data[pos++];
+            optionId |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        String text = new String(data, pos, end - pos, StandardCharsets.UTF_8);
+        if (optionId == RAW_MESSAGE) {
+            return text;
+        }
+        return new Vote(text, options[optionId - 1]).toMessage();
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarInt(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * A fixed number of encoded messages packed into one byte array.
+     * The entry count is volatile and written last, so a reader that sees a
+     * count also sees the end offsets of every entry below it. The byte array
+     * is volatile too and only published once the old bytes are copied into
+     * it, so whichever array a reader picks up holds those entries' bytes.
+     */
+    private static final class Segment {
+        private final int[] ends;
+        private final int[] partitions;
+        private final long[] offsets;
+        private volatile byte[] data = new byte[INITIAL_SEGMENT_BYTES];
+        private volatile int count = 0;
+        // Set once the segment is full, before the next segment is published
+        private Map<Integer, Long> sealedHighWatermarks;
+
+        Segment(int capacity) {
+            this.ends = new int[capacity];
+            this.partitions = new int[capacity];
+            this.offsets = new long[capacity];
+        }
+
+        void append(byte[] encoded, int partition, long offset) {
+            int start = count == 0 ? 0 : ends[count - 1];
+            int end = start + encoded.length;
+            byte[] bytes = data;
+            if (end > bytes.length) {
+                // Readers holding the old array still see every published entry
+                bytes = Arrays.copyOf(bytes, Math.max(end, bytes.length * 2));
+                data = bytes;
+            }
+            System.arraycopy(encoded, 0, bytes, start, encoded.length);
+            ends[count] = end;
+            partitions[count] = partition;
+            offsets[count] = offset;
+            count = count + 1;
+        }
+
+        int size() {
+            int n = count;
+            return n == 0 ? 0 : ends[n - 1];
+        }
+
+        String get(int index, String[] options) {
+            // The count is read before the array, as append writes them in the other order
+            if (index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            byte[] bytes = data;
+            int start = index == 0 ? 0 : ends[index - 1];
+            return decode(bytes, start, ends[index], options);
+        }
+    }
+
+    /**
+     * A retained message and the Kafka position it was read from
+     */
+    public record Entry(int partition, long offset, String message) {
+    }
+
+    private interface EntryReader<T> {
+        T read(Segment segment, int index, String[] options);
+    }
+
+    private final class SegmentView<T> extends AbstractList<T> {
+        private final Segment[] snapshot;
+        private final String[] optionSnapshot;
+        private final int size;
+        private final EntryReader<T> reader;
+
+        SegmentView(Segment[] snapshot, String[] optionSnapshot, int size, EntryReader<T> reader) {
+            this.snapshot = snapshot;
+            this.optionSnapshot = optionSnapshot;
+            this.size = size;
+            this.reader = reader;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return reader.read(snapshot[index / segmentCapacity], index % segmentCapacity, optionSnapshot);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
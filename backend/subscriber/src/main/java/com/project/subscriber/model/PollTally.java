@@ -0,0 +1,53 @@
+package com.project.subscriber.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running vote counters for a single poll.
+ * Counters are updated as each vote arrives so results can be served
+ * without re-reading the stored messages.
+ */
+public class PollTally {
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder totalVotes = new LongAdder();
+
+    public void record(String option) {
+        counts.computeIfAbsent(option, k -> new LongAdder()).increment();
+        totalVotes.increment();
+    }
+
+    /**
+     * Applies a batch of votes at once
+     * @param votesByOption number of new votes for each option
+     */
+    public void recordAll(Map<String, Long> votesByOption) {
+        long added = 0;
+        for (Map.Entry<String, Long> entry : votesByOption.entrySet()) {
+            counts.computeIfAbsent(entry.getKey(), k -> new LongAdder()).add(entry.getValue());
+            added += entry.getValue();
+        }
+        totalVotes.add(added);
+    }
+
+    public void reset() {
+        counts.clear();
+        totalVotes.reset();
+    }
+
+    /**
+     * Returns a point-in-time copy of the option to count map
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counts.forEach((option, count) -> snapshot.put(option, count.sum()));
+        return snapshot;
+    }
+
+    public long getTotalVotes() {
+        return totalVotes.sum();
+    }
+}
@@ -0,0 +1,15 @@
+package com.project.subscriber.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A topic's consumed state as of a checkpoint
+ * @param partitionCounts vote count per option for each partition
+ * @param nextOffsets     next Kafka offset to consume for each partition; the counts
+ *                        and entries reflect every record before it
+ * @param entries         the retained messages of the topic's log, oldest first
+ */
+public record TopicCheckpoint(String topic, Map<Integer, Map<String, Long>> partitionCounts,
+                              Map<Integer, Long> nextOffsets, List<MessageLog.Entry> entries) {
+}
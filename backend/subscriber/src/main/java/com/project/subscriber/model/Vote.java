@@ -0,0 +1,59 @@
+package com.project.subscriber.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A single ballot as sent by the frontend: {"name": ..., "vote": ...}
+ */
+public record Vote(String name, String option) {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Parses a raw topic message into a vote. Only messages with exactly these two
+     * fields match, since the message log stores votes in a compact form that has
+     * to decode back to the same message; use optionOf to count votes.
+     * @param message the message value received from Kafka
+     * @return the vote, or null if the message is not a {"name","vote"} object
+     */
+    public static Vote parse(String message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            if (node != null && node.isObject() && node.size() == 2
+                    && node.path("name").isTextual() && node.path("vote").isTextual()) {
+                return new Vote(node.get("name").asText(), node.get("vote").asText());
+            }
+        } catch (Exception e) {
+            // Not JSON, treated as a raw message by the caller
+        }
+        return null;
+    }
+
+    /**
+     * Extracts the voted option from a message, whatever other fields it carries
+     * @return the "vote" field of a JSON object, or null if there is none
+     */
+    public static String optionOf(String message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            if (node != null && node.hasNonNull("vote")) {
+                return node.get("vote").asText();
+            }
+        } catch (Exception e) {
+            // Not JSON, counted as a raw message by the caller
+        }
+        return null;
+    }
+
+    /**
+     * Serializes the vote back into the frontend's message format
+     */
+    public String toMessage() {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("name", name);
+        node.put("vote", option);
+        return node.toString();
+    }
+}
@@ -0,0 +1,188 @@
+package com.project.subscriber.service;
+
+import com.project.subscriber.model.MessageLog;
+import com.project.subscriber.model.TopicCheckpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the subscriber's checkpoint files.
+ *
+ * Each topic has its own file, a gzipped binary dump of its tally per partition,
+ * the next Kafka offset of each partition and the retained messages, so a change
+ * to one topic only rewrites that topic. Files are written to a temporary file
+ * and renamed into place so a crash never leaves a partial checkpoint. Each
+ * subscriber keeps its files under {@code <dir>/<port>}.
+ */
+@Service
+public class CheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final int MAGIC = 0x53434b50; // "SCKP"
+    private static final int VERSION = 3;
+    private static final String SUFFIX = ".ckpt";
+
+    @Value("${subscriber.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscriber.checkpoint.dir:data/subscriber}")
+    private String dir;
+
+    @Value("${server.port}")
+    private int port;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the last checkpoint of every topic
+     * @return the checkpointed topics; topics without a usable checkpoint are left out
+     */
+    public List<TopicCheckpoint> load() {
+        if (!enabled || !Files.isDirectory(checkpointDir())) {
+            return List.of();
+        }
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(checkpointDir())) {
+            files = listed.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable checkpoint directory {}", checkpointDir(), e);
+            return List.of();
+        }
+        List<TopicCheckpoint> topics = new ArrayList<>(files.size());
+        for (Path file : files) {
+            TopicCheckpoint topic = load(file);
+            if (topic != null) {
+                topics.add(topic);
+            }
+        }
+        return topics;
+    }
+
+    private TopicCheckpoint load(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring checkpoint {} written in an unknown format", file);
+                return null;
+            }
+            String topic = readString(in);
+
+            int countedPartitions = in.readInt();
+            Map<Integer, Map<String, Long>> partitionCounts = new HashMap<>();
+            for (int p = 0; p < countedPartitions; p++) {
+                int partition = in.readInt();
+                int optionCount = in.readInt();
+                Map<String, Long> counts = new LinkedHashMap<>();
+                for (int i = 0; i < optionCount; i++) {
+                    counts.put(readString(in), in.readLong());
+                }
+                partitionCounts.put(partition, counts);
+            }
+
+            int partitionCount = in.readInt();
+            Map<Integer, Long> nextOffsets = new HashMap<>();
+            for (int i = 0; i < partitionCount; i++) {
+                nextOffsets.put(in.readInt(), in.readLong());
+            }
+
+            int entryCount = in.readInt();
+            List<MessageLog.Entry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                entries.add(new MessageLog.Entry(in.readInt(), in.readLong(), readString(in)));
+            }
+            return new TopicCheckpoint(topic, partitionCounts, nextOffsets, entries);
+        } catch (IOException e) {
+            // The state can always be rebuilt from Kafka, so a bad checkpoint only costs a full replay of its topic
+            logger.warn("Ignoring unreadable checkpoint {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the topic's checkpoint
+     */
+    public void write(TopicCheckpoint topic) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        // Topic names may contain characters that are not valid in file names
+        Path file = checkpointDir().resolve(URLEncoder.encode(topic.topic(), StandardCharsets.UTF_8) + SUFFIX);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp.toFile())) {
+            GZIPOutputStream gzip = new GZIPOutputStream(fileOut);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, topic.topic());
+
+            out.writeInt(topic.partitionCounts().size());
+            for (Map.Entry<Integer, Map<String, Long>> partition : topic.partitionCounts().entrySet()) {
+                out.writeInt(partition.getKey());
+                out.writeInt(partition.getValue().size());
+                for (Map.Entry<String, Long> count : partition.getValue().entrySet()) {
+                    writeString(out, count.getKey());
+                    out.writeLong(count.getValue());
+                }
+            }
+
+            out.writeInt(topic.nextOffsets().size());
+            for (Map.Entry<Integer, Long> offset : topic.nextOffsets().entrySet()) {
+                out.writeInt(offset.getKey());
+                out.writeLong(offset.getValue());
+            }
+
+            out.writeInt(topic.entries().size());
+            for (MessageLog.Entry entry : topic.entries()) {
+                out.writeInt(entry.partition());
+                out.writeLong(entry.offset());
+                writeString(out, entry.message());
+            }
+            out.flush();
+            // Finishes the gzip trailer before the file is forced and closed
+            gzip.finish();
+            fileOut.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path checkpointDir() {
+        return Path.of(dir, String.valueOf(port));
+    }
+
+    // Length-prefixed UTF-8, since messages can exceed writeUTF's 64 KB limit
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package com.project.subscriber.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.subscriber.model.GatheredResults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves poll results when subscribers share a consumer group.
+ *
+ * Each member of the group only counts the votes of the partitions assigned to
+ * it, so a results query asks every peer for its per-partition counts in
+ * parallel and adds them to this subscriber's own. A partition that moved
+ * between members is reported by both, each for the records it consumed.
+ * Gathering never blocks the caller, and peers that fail to answer before the
+ * gather timeout are left out and listed as missing, so callers can tell
+ * partial results from complete ones.
+ *
+ * Counts live only in the memory of the member that consumed the records. When
+ * the group scales in, the partitions of a member that left resume from its
+ * committed offsets on another member, so the departed member's counts are lost
+ * from the results. Nothing hands per-partition tallies over with a partition yet.
+ */
+@Service
+public class ResultsGatherer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultsGatherer.class);
+    private static final TypeReference<Map<Integer, Map<String, Long>>> PARTITION_RESULTS = new TypeReference<>() {};
+    // Comma separated peers left out of a results response
+    public static final String MISSING_PEERS_HEADER = "X-Missing-Peers";
+
+    private final SubscriberService subscriberService;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${subscriber.group.shared:false}")
+    private boolean sharedGroup;
+
+    // Base URLs of the other subscribers in the shared group
+    @Value("${subscriber.group.peers:}")
+    private List<String> peers;
+
+    @Value("${internode.http.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    @Value("${subscriber.group.gather-timeout-ms:2000}")
+    private long gatherTimeoutMs;
+
+    public ResultsGatherer(SubscriberService subscriberService, HttpClient interNodeHttpClient, ObjectMapper objectMapper) {
+        this.subscriberService = subscriberService;
+        this.httpClient = interNodeHttpClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Whether results have to be gathered from peers rather than read locally
+     */
+    public boolean isDistributed() {
+        return sharedGroup && !peers.isEmpty();
+    }
+
+    /**
+     * Gathers the vote count per option for a topic across the whole group. Completes
+     * within the gather timeout, with the peers that had not answered by then left out.
+     */
+    public CompletableFuture<GatheredResults> gatherResults(String topic) {
+        if (!isDistributed()) {
+            return CompletableFuture.completedFuture(GatheredResults.complete(subscriberService.getResultsForTopic(topic)));
+        }
+        List<String> targets = peers.stream().map(String::trim).toList();
+        List<CompletableFuture<Map<Integer, Map<String, Long>>>> requests = new ArrayList<>();
+        for (String peer : targets) {
+            // Every request gets the same deadline, so it bounds the gather as a whole
+            requests.add(fetchPartitionResults(peer, topic)
+                    .orTimeout(gatherTimeoutMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        logger.warn("Leaving out results of peer {} for topic {}: {}", peer, topic, e.toString());
+                        return null;
+                    }));
+        }
+        Map<Integer, Map<String, Long>> local = subscriberService.getPartitionResults(topic);
+
+        return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            Map<String, Long> results = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            addAll(results, local);
+            for (int i = 0; i < requests.size(); i++) {
+                Map<Integer, Map<String, Long>> peerResults = requests.get(i).join();
+                if (peerResults == null) {
+                    missing.add(targets.get(i));
+                } else {
+                    addAll(results, peerResults);
+                }
+            }
+            return new GatheredResults(results, List.copyOf(missing));
+        });
+    }
+
+    private CompletableFuture<Map<Integer, Map<String, Long>>> fetchPartitionResults(String peer, String topic) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(peer + "/api/results/" + topic + "/partitions?timestamp=" + subscriberService.getLogicalClock()))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), PARTITION_RESULTS);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static void addAll(Map<String, Long> results, Map<Integer, Map<String, Long>> partitionResults) {
+        partitionResults.values().forEach(counts -> counts.forEach((option, count) -> results.merge(option, count, Long::sum)));
+    }
+}
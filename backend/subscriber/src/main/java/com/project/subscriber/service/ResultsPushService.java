@@ -0,0 +1,224 @@
+package com.project.subscriber.service;
+
+import com.project.subscriber.model.GatheredResults;
+import com.project.subscriber.model.PollTally;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams live poll results to connected clients over Server-Sent Events.
+ *
+ * Tallies are checked once per push interval and each changed topic is sent
+ * to its viewers at most once per interval, however many votes arrived in between.
+ * When results are spread over a shared consumer group they are gathered from
+ * the peers once per interval per watched topic instead, without waiting for the
+ * peers on the scheduler thread; a topic whose last gather is still running is
+ * skipped. Events with counts that miss some peers say so in an SSE comment.
+ *
+ * Events are written on a separate send pool, so a slow client never holds up
+ * the scheduler. Each viewer has at most one send in flight and only gets the
+ * latest tally once it finishes; a viewer whose send is stuck for longer than
+ * the send timeout is dropped.
+ */
+@Service
+public class ResultsPushService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultsPushService.class);
+    private static final String RESULTS_EVENT = "results";
+
+    private final SubscriberService subscriberService;
+    private final ResultsGatherer resultsGatherer;
+    private final Map<String, Set<Viewer>> topicViewers = new ConcurrentHashMap<>();
+    private final Map<String, PushedState> lastPushed = new ConcurrentHashMap<>();
+    private final Map<String, GatheredResults> lastGathered = new ConcurrentHashMap<>();
+    // Topics with a gather from the peers in flight
+    private final Set<String> gathering = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sendExecutor;
+
+    @Value("${subscriber.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${subscriber.push.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    public ResultsPushService(SubscriberService subscriberService, ResultsGatherer resultsGatherer,
+                              @Value("${subscriber.push.send-threads:4}") int sendThreads) {
+        this.subscriberService = subscriberService;
+        this.resultsGatherer = resultsGatherer;
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads);
+    }
+
+    /**
+     * Opens a results stream for a topic, starting with the current tally
+     */
+    public SseEmitter subscribe(String topic) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Viewer viewer = new Viewer(topic, emitter);
+        // Added inside compute so the set cannot be dropped as empty in between
+        Set<Viewer> viewers = topicViewers.compute(topic, (k, existing) -> {
+            Set<Viewer> set = existing == null ? new CopyOnWriteArraySet<>() : existing;
+            set.add(viewer);
+            return set;
+        });
+        emitter.onCompletion(() -> removeViewer(viewer));
+        emitter.onTimeout(() -> removeViewer(viewer));
+        emitter.onError(e -> removeViewer(viewer));
+        logger.info("Opened results stream for topic: {} ({} viewers)", topic, viewers.size());
+
+        resultsGatherer.gatherResults(topic).thenAccept(viewer::offer);
+        return emitter;
+    }
+
+    /**
+     * Pushes the tally of every watched topic that changed since the last push
+     */
+    @Scheduled(fixedRateString = "${subscriber.push.interval-ms:250}")
+    public void pushUpdates() {
+        for (Map.Entry<String, Set<Viewer>> entry : topicViewers.entrySet()) {
+            String topic = entry.getKey();
+            Set<Viewer> viewers = entry.getValue();
+            if (resultsGatherer.isDistributed()) {
+                pushGathered(topic, viewers);
+                continue;
+            }
+            PollTally tally = subscriberService.getTally(topic);
+            if (viewers.isEmpty() || tally == null) {
+                continue;
+            }
+
+            PushedState current = new PushedState(tally, tally.getTotalVotes());
+            if (current.equals(lastPushed.get(topic))) {
+                continue;
+            }
+            lastPushed.put(topic, current);
+
+            GatheredResults results = GatheredResults.complete(tally.getCounts());
+            for (Viewer viewer : viewers) {
+                viewer.offer(results);
+            }
+        }
+    }
+
+    private void pushGathered(String topic, Set<Viewer> viewers) {
+        if (viewers.isEmpty() || !gathering.add(topic)) {
+            return;
+        }
+        resultsGatherer.gatherResults(topic).whenComplete((results, ex) -> {
+            gathering.remove(topic);
+            if (ex != null) {
+                logger.warn("Error gathering results for topic {}", topic, ex);
+                return;
+            }
+            if (results.equals(lastGathered.put(topic, results))) {
+                return;
+            }
+            // Viewers that joined while the gather ran get these results too
+            for (Viewer viewer : topicViewers.getOrDefault(topic, Set.of())) {
+                viewer.offer(results);
+            }
+        });
+    }
+
+    private void removeViewer(Viewer viewer) {
+        String topic = viewer.topic;
+        topicViewers.computeIfPresent(topic, (k, viewers) -> {
+            if (viewers.remove(viewer)) {
+                logger.info("Closed results stream for topic: {} ({} viewers)", topic, viewers.size());
+            }
+            if (!viewers.isEmpty()) {
+                return viewers;
+            }
+            // Nobody watches the topic any more, so its next viewer starts from a fresh push
+            lastPushed.remove(topic);
+            lastGathered.remove(topic);
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * One open results stream. Offered tallies replace each other until the send
+     * pool gets to them, so a viewer only ever has one send in flight.
+     */
+    private final class Viewer {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final AtomicReference<GatheredResults> pending = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // When the send in flight started, 0 while idle
+        private volatile long sendingSince = 0;
+
+        Viewer(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        void offer(GatheredResults results) {
+            pending.set(results);
+            if (scheduled.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+                return;
+            }
+            long since = sendingSince;
+            if (since != 0 && System.currentTimeMillis() - since > sendTimeoutMs) {
+                // The stuck write is left to fail on its own; completing the emitter would wait for it
+                logger.warn("Dropping results stream for topic {} stalled for over {} ms", topic, sendTimeoutMs);
+                removeViewer(this);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                GatheredResults results = pending.getAndSet(null);
+                if (results == null) {
+                    scheduled.set(false);
+                    // Picks up a tally offered after the check above but before the flag was cleared
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                sendingSince = System.currentTimeMillis();
+                try {
+                    SseEmitter.SseEventBuilder event = SseEmitter.event().name(RESULTS_EVENT);
+                    if (results.isPartial()) {
+                        event.comment("partial results, missing peers: " + String.join(",", results.missingPeers()));
+                    }
+                    emitter.send(event.data(results.counts()));
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Dropping results stream for topic {}: {}", topic, e.getMessage());
+                    removeViewer(this);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * The tally instance and vote count last sent for a topic. The instance is
+     * part of the state because a refresh replaces the tally outright.
+     */
+    private record PushedState(PollTally tally, long totalVotes) {
+    }
+}
@@ -1,11 +1,18 @@
 package com.project.subscriber.service;
 
+import com.project.subscriber.client.InterNodeClient;
+import com.project.subscriber.model.MessageDelta;
+import com.project.subscriber.model.MessageLog;
+import com.project.subscriber.model.PollTally;
+import com.project.subscriber.model.TopicCheckpoint;
+import com.project.subscriber.model.Vote;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.ListTopicsResult;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -13,31 +20,37 @@ import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.listener.MessageListenerContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import java.time.Duration;
-import java.util.Collections;
-import java.util.Properties;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 public class SubscriberService {
 
     private static final Logger logger = LoggerFactory.getLogger(SubscriberService.class);
 
-    private final RestTemplate restTemplate;
+    private final InterNodeClient interNodeClient;
     private final AdminClient adminClient;
     private final KafkaListenerEndpointRegistry kafkaListenerRegistry;
+    private final KafkaListenerContainerFactory<?> kafkaListenerContainerFactory;
+    private final CheckpointStore checkpointStore;
+    private final TopicReplayer topicReplayer;
 
     @Value("${coordinator.url}")
     private String coordinatorUrl;
@@ -45,97 +58,444 @@ public class SubscriberService {
     @Value("${server.port}")
     private int port;
 
-    private String leaderBroker;
-    private List<String> subscribedTopics = new ArrayList<>();
-    private Map<String, List<String>> topicMessages = new ConcurrentHashMap<>();
-    private long logicalClock = 0;
+    // Topics subscribed to on startup, in addition to those restored from the checkpoint
+    @Value("${subscriber.initial-topics:Poll3}")
+    private List<String> initialTopics;
 
-    public SubscriberService(RestTemplate restTemplate, 
+    @Value("${subscriber.group.shared:false}")
+    private boolean sharedGroup;
+
+    @Value("${subscriber.checkpoint.interval-ms:30000}")
+    private long checkpointIntervalMs;
+
+    @Value("${subscriber.store.segment-size:4096}")
+    private int segmentSize;
+
+    @Value("${subscriber.store.max-messages-per-topic:1000000}")
+    private long maxMessagesPerTopic;
+
+    @Value("${subscriber.store.max-bytes-per-topic:67108864}")
+    private long maxBytesPerTopic;
+
+    // Written by the completion of the asynchronous leader lookup
+    private volatile String leaderBroker;
+    private final CopyOnWriteArrayList<String> subscribedTopics = new CopyOnWriteArrayList<>();
+    // Guards starting and stopping the per-topic listener containers
+    private final Object listenerLock = new Object();
+    private final Map<String, MessageLog> topicMessages = new ConcurrentHashMap<>();
+    private final Map<String, PollTally> topicTallies = new ConcurrentHashMap<>();
+    // The same votes as topicTallies, split by the partition they were read from
+    private final Map<String, Map<Integer, PollTally>> partitionTallies = new ConcurrentHashMap<>();
+    // Next offset to consume for each partition; a topic's entries are updated together with its log
+    private final Map<TopicPartition, Long> nextOffsets = new ConcurrentHashMap<>();
+    // Offset below which each partition's records are already in the log. Ahead of nextOffsets when a
+    // replay in a shared group filled in the log but left the tallies to the partitions' owners.
+    private final Map<TopicPartition, Long> loggedOffsets = new ConcurrentHashMap<>();
+    // Batches applied to each topic's state, so checkpoints can skip topics that did not change
+    private final Map<String, AtomicLong> appliedBatches = new ConcurrentHashMap<>();
+    // The applied batch count each topic's checkpoint reflects, guarded by writeCheckpoint
+    private final Map<String, Long> checkpointedBatches = new HashMap<>();
+    // Checkpoints are written on their own thread, so a large one never holds up the scheduled tasks
+    private final ScheduledExecutorService checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "subscriber-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LamportClock clock = new LamportClock();
+
+    public SubscriberService(InterNodeClient interNodeClient,
                             AdminClient adminClient,
-                            KafkaListenerEndpointRegistry kafkaListenerRegistry) {
-        this.restTemplate = restTemplate;
+                            KafkaListenerEndpointRegistry kafkaListenerRegistry,
+                            KafkaListenerContainerFactory<?> kafkaListenerContainerFactory,
+                            CheckpointStore checkpointStore,
+                            TopicReplayer topicReplayer) {
+        this.interNodeClient = interNodeClient;
         this.adminClient = adminClient;
         this.kafkaListenerRegistry = kafkaListenerRegistry;
+        this.kafkaListenerContainerFactory = kafkaListenerContainerFactory;
+        this.checkpointStore = checkpointStore;
+        this.topicReplayer = topicReplayer;
     }
 
     @PostConstruct
     public void init() {
+        // Restored before any listener is started, so their first assignment seeks past the restored state
+        List<String> restoredTopics = restoreCheckpoint();
         updateLeaderBroker();
-        // Initialize the Kafka listener
-        logger.info("Initializing Kafka listener for all topics");
-        // Ensure we're subscribed to Poll3 from the start
-        subscribeTopic("Poll3");
+        restoredTopics.forEach(this::subscribeTopic);
+        initialTopics.forEach(this::subscribeTopic);
+        if (checkpointStore.isEnabled()) {
+            checkpointScheduler.scheduleWithFixedDelay(this::writeCheckpoint, checkpointIntervalMs, checkpointIntervalMs, TimeUnit.MILLISECONDS);
+        }
     }
 
+    /**
+     * Asks the coordinator for the leader broker. The request is asynchronous, so a
+     * slow coordinator never holds up the scheduler or startup.
+     */
     @Scheduled(fixedRate = 5000)
     public void updateLeaderBroker() {
         incrementClock();
         try {
-            this.leaderBroker = restTemplate.getForObject(coordinatorUrl + "/api/leader?timestamp=" + logicalClock, String.class);
-            logger.info("Updated leader broker: {}", leaderBroker);
+            interNodeClient.get(coordinatorUrl, "/api/leader", Map.of(), clock.get(), String.class)
+                    .whenComplete((leader, ex) -> {
+                        if (ex != null) {
+                            logger.error("Error updating leader broker: {}", ex.getMessage());
+                            return;
+                        }
+                        this.leaderBroker = leader;
+                        logger.info("Updated leader broker: {}", leader);
+                    });
         } catch (Exception e) {
             logger.error("Error updating leader broker", e);
         }
     }
 
-    // Listen to all topics
-    @KafkaListener(id = "all-topics-listener", topicPattern = ".*")
-    public void listen(ConsumerRecord<String, String> record) {
-        String topic = record.topic();
-        String message = record.value();
-        
-        // Skip internal Kafka topics
-        if (topic.startsWith("__")) {
+    /**
+     * Starts a listener container consuming only the given topic
+     */
+    private void startListener(String topic) {
+        TopicListenerEndpoint endpoint = new TopicListenerEndpoint(listenerId(topic), topic, new TopicListener(topic));
+        // Before the registry starts, it starts the container itself along with the others
+        kafkaListenerRegistry.registerListenerContainer(endpoint, kafkaListenerContainerFactory, kafkaListenerRegistry.isRunning());
+        logger.info("Started listener for topic: {}", topic);
+    }
+
+    private void stopListener(String topic) {
+        MessageListenerContainer container = kafkaListenerRegistry.unregisterListenerContainer(listenerId(topic));
+        if (container != null) {
+            container.stop();
+            logger.info("Stopped listener for topic: {}", topic);
+        }
+    }
+
+    private static String listenerId(String topic) {
+        return "topic-listener-" + topic;
+    }
+
+    /**
+     * Consumes one topic, a poll's worth of records at a time
+     */
+    private final class TopicListener implements BatchMessageListener<String, String>, ConsumerSeekAware {
+
+        private final String topic;
+
+        TopicListener(String topic) {
+            this.topic = topic;
+        }
+
+        @Override
+        public void onMessage(List<ConsumerRecord<String, String>> records) {
+            logger.debug("Received batch of {} records for topic {}", records.size(), topic);
+            storeMessages(topic, records);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+            seekPastAppliedRecords(assignments, callback);
+        }
+    }
+
+    /**
+     * Resumes each assigned partition right after the last record applied to the
+     * in-memory state, whether that came from this run or from the checkpoint.
+     * A partition whose position is already past that was consumed by another
+     * member of a shared group in the meantime, and is left where it is.
+     */
+    private void seekPastAppliedRecords(Map<TopicPartition, Long> assignments, ConsumerSeekAware.ConsumerSeekCallback callback) {
+        assignments.forEach((partition, position) -> {
+            Long next = nextOffsets.get(partition);
+            if (next != null && next > position) {
+                callback.seek(partition.topic(), partition.partition(), next);
+            }
+        });
+    }
+
+    /**
+     * Appends a batch of records to the topic's store and applies their votes to the running tally.
+     * Records before a partition's next offset were already applied and are skipped, so
+     * a topic that is subscribed to again picks up exactly where it stopped. Records a replay
+     * already put in the log are only counted.
+     */
+    private void storeMessages(String topic, List<ConsumerRecord<String, String>> records) {
+        withTopicLocked(topic, log -> {
+            PollTally tally = topicTallies.computeIfAbsent(topic, k -> new PollTally());
+            Map<Integer, PollTally> partitions = partitionTallies.computeIfAbsent(topic, k -> new ConcurrentHashMap<>());
+            List<ConsumerRecord<String, String>> fresh = new ArrayList<>(records.size());
+            List<ConsumerRecord<String, String>> unlogged = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, String> record : records) {
+                TopicPartition partition = new TopicPartition(topic, record.partition());
+                Long next = nextOffsets.get(partition);
+                if (next == null || record.offset() >= next) {
+                    fresh.add(record);
+                    nextOffsets.put(partition, record.offset() + 1);
+                    if (record.offset() >= loggedOffsets.getOrDefault(partition, 0L)) {
+                        unlogged.add(record);
+                    }
+                }
+            }
+            if (fresh.isEmpty()) {
+                return null;
+            }
+            if (unlogged.size() == fresh.size()) {
+                applyRecords(fresh, log, tally, partitions);
+            } else {
+                countRecords(fresh, parseVotes(fresh), tally, partitions);
+                log.appendAll(unlogged, parseVotes(unlogged));
+            }
+            markApplied(topic);
+            return null;
+        });
+    }
+
+    /**
+     * Runs an action holding the lock of the topic's current log, which keeps the
+     * topic's log, tallies and next offsets consistent with each other
+     */
+    private <T> T withTopicLocked(String topic, Function<MessageLog, T> action) {
+        while (true) {
+            MessageLog log = topicMessages.computeIfAbsent(topic, k -> newMessageLog());
+            synchronized (log) {
+                // A replay may have swapped in a new log while this thread waited for the old one
+                if (topicMessages.get(topic) == log) {
+                    return action.apply(log);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a topic's messages and tallies by replaying it from the beginning of
+     * Kafka, then swaps them in. Waits for a replay of the topic that is already running
+     * instead of starting another one.
+     * @return the topic's messages once the replay is done, or the current ones if it failed
+     */
+    private List<String> replayTopic(String topic) {
+        // In a shared group other members counted some of the votes, so only the messages are rebuilt
+        boolean rebuildTallies = !sharedGroup;
+        MessageLog log = newMessageLog();
+        PollTally tally = new PollTally();
+        Map<Integer, PollTally> partitions = new ConcurrentHashMap<>();
+        CompletableFuture<Long> replay = topicReplayer.replay(topic, new TopicReplayer.ReplayHandler() {
+            @Override
+            public void onChunk(List<ConsumerRecord<String, String>> records) {
+                applyRecords(records, log, tally, partitions);
+            }
+
+            @Override
+            public void onComplete(Map<Integer, Long> endOffsets) {
+                installReplay(topic, log, tally, partitions, endOffsets, rebuildTallies);
+            }
+        });
+        try {
+            replay.join();
+        } catch (CompletionException e) {
+            logger.error("Error replaying topic {} from Kafka", topic, e.getCause());
+        }
+        MessageLog current = topicMessages.get(topic);
+        return current == null ? new ArrayList<>() : current.getMessages();
+    }
+
+    /**
+     * Swaps in a replayed log and tallies. Records the listener already applied past the
+     * replay's end offsets are copied over from the old log, so nothing is lost or counted twice.
+     * @param replaceTallies false to keep the current tallies and next offsets and only swap in the log;
+     *                       the listener then counts records up to the end offsets without logging them again
+     */
+    private void installReplay(String topic, MessageLog log, PollTally tally, Map<Integer, PollTally> partitions,
+                               Map<Integer, Long> endOffsets, boolean replaceTallies) {
+        withTopicLocked(topic, current -> {
+            List<ConsumerRecord<String, String>> newer = new ArrayList<>();
+            for (MessageLog.Entry entry : current.getEntries()) {
+                if (entry.offset() >= endOffsets.getOrDefault(entry.partition(), 0L)) {
+                    newer.add(new ConsumerRecord<>(topic, entry.partition(), entry.offset(), null, entry.message()));
+                }
+            }
+            if (!newer.isEmpty()) {
+                applyRecords(newer, log, tally, partitions);
+            }
+            // The new log holds every record before the end offsets, whoever counts them
+            endOffsets.forEach((partition, end) -> loggedOffsets.merge(new TopicPartition(topic, partition), end, Math::max));
+            if (replaceTallies) {
+                endOffsets.forEach((partition, end) -> nextOffsets.merge(new TopicPartition(topic, partition), end, Math::max));
+                // The log goes last: a thread that sees the new log also sees the new tallies
+                topicTallies.put(topic, tally);
+                partitionTallies.put(topic, partitions);
+            }
+            topicMessages.put(topic, log);
+            markApplied(topic);
+            return null;
+        });
+    }
+
+    private void applyRecords(List<ConsumerRecord<String, String>> records, MessageLog log, PollTally tally,
+                              Map<Integer, PollTally> partitions) {
+        List<Vote> votes = parseVotes(records);
+        log.appendAll(records, votes);
+        countRecords(records, votes, tally, partitions);
+    }
+
+    private static List<Vote> parseVotes(List<ConsumerRecord<String, String>> records) {
+        List<Vote> votes = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            votes.add(Vote.parse(record.value()));
+        }
+        return votes;
+    }
+
+    private static void countRecords(List<ConsumerRecord<String, String>> records, List<Vote> votes, PollTally tally,
+                                     Map<Integer, PollTally> partitions) {
+        Map<String, Long> votesByOption = new HashMap<>();
+        Map<Integer, Map<String, Long>> votesByPartition = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            String option = voteOption(record.value(), votes.get(i));
+            votesByOption.merge(option, 1L, Long::sum);
+            votesByPartition.computeIfAbsent(record.partition(), k -> new HashMap<>()).merge(option, 1L, Long::sum);
+        }
+        votesByPartition.forEach((partition, counts) ->
+                partitions.computeIfAbsent(partition, k -> new PollTally()).recordAll(counts));
+        tally.recordAll(votesByOption);
+    }
+
+    /**
+     * Counts a change to a topic's state; callers hold the topic's lock
+     */
+    private void markApplied(String topic) {
+        appliedBatches.computeIfAbsent(topic, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Writes the tally, log and next offsets of each topic that changed since its last checkpoint
+     */
+    public synchronized void writeCheckpoint() {
+        if (!checkpointStore.isEnabled()) {
             return;
         }
-        
-        logger.info("Received message from topic {}: {}", topic, message);
-        logger.info("Message details - Partition: {}, Offset: {}, Timestamp: {}", 
-                   record.partition(), record.offset(), record.timestamp());
-        
-        // Store the message even if we haven't explicitly subscribed
-        // This ensures we capture all messages
-        topicMessages.computeIfAbsent(topic, k -> new ArrayList<>()).add(message);
-        
-        // If we receive a message for a topic we're not subscribed to,
-        // automatically add it to our subscribed topics
-        if (!subscribedTopics.contains(topic)) {
-            subscribedTopics.add(topic);
-            logger.info("Auto-subscribed to topic: {}", topic);
+        int written = 0;
+        for (String topic : topicMessages.keySet()) {
+            long[] applied = new long[1];
+            TopicCheckpoint checkpoint = withTopicLocked(topic, log -> {
+                AtomicLong counter = appliedBatches.get(topic);
+                applied[0] = counter == null ? 0 : counter.get();
+                if (applied[0] == checkpointedBatches.getOrDefault(topic, 0L)) {
+                    return null;
+                }
+                Map<Integer, Long> offsets = new HashMap<>();
+                nextOffsets.forEach((partition, next) -> {
+                    if (partition.topic().equals(topic)) {
+                        offsets.put(partition.partition(), next);
+                    }
+                });
+                // The entry view is a snapshot, so it is written out after the lock is released
+                return new TopicCheckpoint(topic, partitionCounts(topic), offsets, log.getEntries());
+            });
+            if (checkpoint == null) {
+                continue;
+            }
+            try {
+                checkpointStore.write(checkpoint);
+                checkpointedBatches.put(topic, applied[0]);
+                written++;
+            } catch (IOException e) {
+                logger.error("Error writing checkpoint of topic {}", topic, e);
+            }
+        }
+        if (written > 0) {
+            logger.debug("Checkpointed {} topics", written);
         }
     }
 
-    // Dedicated listener for Poll3
-    @KafkaListener(id = "poll3-listener", topics = "Poll3", groupId = "poll3-consumer")
-    public void listenToPoll3(ConsumerRecord<String, String> record) {
-        String message = record.value();
-        logger.info("POLL3 DEDICATED LISTENER - Received message: {}", message);
-        logger.info("POLL3 DEDICATED LISTENER - Message details - Partition: {}, Offset: {}, Timestamp: {}", 
-                   record.partition(), record.offset(), record.timestamp());
-        
-        // Store the message in the topicMessages map
-        topicMessages.computeIfAbsent("Poll3", k -> new ArrayList<>()).add(message);
-        
-        // Ensure we're subscribed to Poll3
-        if (!subscribedTopics.contains("Poll3")) {
-            subscribedTopics.add("Poll3");
-            logger.info("Auto-subscribed to Poll3 via dedicated listener");
+    @PreDestroy
+    public void shutdown() {
+        // A checkpoint in progress finishes rather than being interrupted; the final one waits for it
+        checkpointScheduler.shutdown();
+        writeCheckpoint();
+    }
+
+    /**
+     * Loads the last checkpoint so only records after it are consumed from Kafka
+     * @return the restored topics
+     */
+    private List<String> restoreCheckpoint() {
+        List<TopicCheckpoint> topics = checkpointStore.load();
+        for (TopicCheckpoint checkpoint : topics) {
+            String topic = checkpoint.topic();
+            List<ConsumerRecord<String, String>> records = new ArrayList<>(checkpoint.entries().size());
+            List<Vote> votes = new ArrayList<>(checkpoint.entries().size());
+            for (MessageLog.Entry entry : checkpoint.entries()) {
+                records.add(new ConsumerRecord<>(topic, entry.partition(), entry.offset(), null, entry.message()));
+                votes.add(Vote.parse(entry.message()));
+                // A replay may have logged records past the tally's next offset; they must not be logged again
+                loggedOffsets.merge(new TopicPartition(topic, entry.partition()), entry.offset() + 1, Math::max);
+            }
+            MessageLog log = newMessageLog();
+            log.appendAll(records, votes);
+            // Tallies are restored as saved rather than recounted, since they cover messages the log no longer retains
+            PollTally tally = new PollTally();
+            Map<Integer, PollTally> partitions = new ConcurrentHashMap<>();
+            checkpoint.partitionCounts().forEach((partition, counts) -> {
+                partitions.computeIfAbsent(partition, k -> new PollTally()).recordAll(counts);
+                tally.recordAll(counts);
+            });
+            topicMessages.put(topic, log);
+            topicTallies.put(topic, tally);
+            partitionTallies.put(topic, partitions);
+            checkpoint.nextOffsets().forEach((partition, next) -> nextOffsets.put(new TopicPartition(topic, partition), next));
+        }
+        if (!topics.isEmpty()) {
+            logger.info("Restored {} topics from checkpoint: {}", topics.size(), nextOffsets);
         }
+        return topics.stream().map(TopicCheckpoint::topic).toList();
     }
 
+    private MessageLog newMessageLog() {
+        return new MessageLog(segmentSize, maxMessagesPerTopic, maxBytesPerTopic);
+    }
+
+    /**
+     * Messages with a "vote" field count for that option. Anything else is counted as a
+     * vote for the whole message, matching how the frontend has always displayed them.
+     */
+    private static String voteOption(String message, Vote vote) {
+        if (vote != null) {
+            return vote.option();
+        }
+        // Votes with extra fields, such as a timestamp, don't parse strictly but still count for their option
+        String option = Vote.optionOf(message);
+        return option != null ? option : message;
+    }
+
+    /**
+     * Subscribes to a topic and starts consuming it
+     */
     public void subscribeTopic(String topic) {
         incrementClock();
-        if (!subscribedTopics.contains(topic)) {
-            subscribedTopics.add(topic);
-            // Initialize the message list for this topic if it doesn't exist
-            topicMessages.putIfAbsent(topic, new ArrayList<>());
-            logger.info("Subscribed to topic: {}", topic);
+        if (topic.startsWith("__")) {
+            logger.warn("Not subscribing to internal Kafka topic: {}", topic);
+            return;
+        }
+        synchronized (listenerLock) {
+            if (subscribedTopics.addIfAbsent(topic)) {
+                // Initialize the message store for this topic if it doesn't exist
+                topicMessages.computeIfAbsent(topic, k -> newMessageLog());
+                startListener(topic);
+                logger.info("Subscribed to topic: {}", topic);
+            }
         }
     }
 
+    /**
+     * Stops consuming a topic. Its messages and tally are kept, and consuming
+     * resumes from where it stopped if the topic is subscribed to again.
+     */
     public void unsubscribeTopic(String topic) {
         incrementClock();
-        subscribedTopics.remove(topic);
+        synchronized (listenerLock) {
+            if (subscribedTopics.remove(topic)) {
+                stopListener(topic);
+            }
+        }
         logger.info("Unsubscribed from topic: {}", topic);
     }
 
@@ -175,12 +535,14 @@ public class SubscriberService {
 
     public Map<String, List<String>> getTopicMessages() {
         incrementClock();
-        return topicMessages;
+        Map<String, List<String>> messages = new HashMap<>();
+        topicMessages.forEach((topic, log) -> messages.put(topic, log.getMessages()));
+        return messages;
     }
 
     public List<String> getMessagesForTopic(String topic) {
         incrementClock();
-        logger.info("Getting messages for topic: {}, logical clock: {}", topic, logicalClock);
+        logger.info("Getting messages for topic: {}, logical clock: {}", topic, clock.get());
         
         // If we're asked for messages for a topic we're not subscribed to,
         // automatically subscribe to it
@@ -189,7 +551,8 @@ public class SubscriberService {
             subscribeTopic(topic);
         }
         
-        List<String> messages = topicMessages.getOrDefault(topic, new ArrayList<>());
+        MessageLog log = topicMessages.get(topic);
+        List<String> messages = log == null ? new ArrayList<>() : log.getMessages();
         logger.info("Retrieved {} messages for topic: {}", messages.size(), topic);
         
         // Add more detailed logging
@@ -199,15 +562,8 @@ public class SubscriberService {
             try {
                 Set<String> topics = adminClient.listTopics().names().get();
                 if (topics.contains(topic)) {
-                    logger.info("Topic {} exists in Kafka but no messages were retrieved", topic);
-                    // Try to manually fetch messages
-                    List<String> manuallyFetchedMessages = manuallyFetchMessagesFromKafka(topic);
-                    if (!manuallyFetchedMessages.isEmpty()) {
-                        logger.info("Manually fetched {} messages for topic {}", manuallyFetchedMessages.size(), topic);
-                        // Update our in-memory store
-                        topicMessages.put(topic, manuallyFetchedMessages);
-                        return manuallyFetchedMessages;
-                    }
+                    logger.info("Topic {} exists in Kafka but no messages were retrieved, replaying it", topic);
+                    return replayTopic(topic);
                 } else {
                     logger.warn("Topic {} does not exist in Kafka", topic);
                 }
@@ -225,38 +581,65 @@ public class SubscriberService {
     }
     
     /**
-     * Manually fetch messages from Kafka for a specific topic
-     * This is a fallback method in case the regular Kafka listener isn't working
+     * Returns the messages for a topic that arrived after the given cursor
+     * @param cursor partition:offset pairs returned by a previous call, or empty to start from the beginning
      */
-    private List<String> manuallyFetchMessagesFromKafka(String topic) {
-        List<String> messages = new ArrayList<>();
-        Properties props = new Properties();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "manual-fetcher-" + System.currentTimeMillis());
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        
-        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
-            consumer.subscribe(Collections.singletonList(topic));
-            
-            // Poll for records
-            ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(5000));
-            
-            logger.info("Manually fetched {} records for topic {}", records.count(), topic);
-            
-            records.forEach(record -> {
-                logger.info("Manual fetch - Received message from topic {}: {}", record.topic(), record.value());
-                messages.add(record.value());
-            });
-            
-            // Commit offsets
-            consumer.commitSync();
-        } catch (Exception e) {
-            logger.error("Error manually fetching messages from Kafka", e);
+    public MessageDelta getMessagesSince(String topic, String cursor) {
+        incrementClock();
+        Map<Integer, Long> offsets = MessageDelta.parseCursor(cursor);
+        if (!subscribedTopics.contains(topic)) {
+            logger.info("Auto-subscribing to topic: {} as it was not in subscribed topics: {}", topic, subscribedTopics);
+            subscribeTopic(topic);
         }
-        
-        return messages;
+        MessageLog log = topicMessages.get(topic);
+        if (log == null) {
+            return new MessageDelta(new ArrayList<>(), offsets);
+        }
+        return log.readSince(offsets);
+    }
+
+    /**
+     * Returns the current vote count per option for a topic.
+     * This is maintained incrementally as votes arrive, so its cost depends only
+     * on the number of options rather than the number of votes.
+     */
+    public Map<String, Long> getResultsForTopic(String topic) {
+        incrementClock();
+        if (!subscribedTopics.contains(topic)) {
+            logger.info("Auto-subscribing to topic: {} as it was not in subscribed topics: {}", topic, subscribedTopics);
+            subscribeTopic(topic);
+        }
+        PollTally tally = topicTallies.get(topic);
+        return tally == null ? new HashMap<>() : tally.getCounts();
+    }
+
+    /**
+     * Returns this subscriber's vote counts for a topic split by partition. In a shared
+     * consumer group these only cover the partitions this subscriber has consumed.
+     */
+    public Map<Integer, Map<String, Long>> getPartitionResults(String topic) {
+        incrementClock();
+        if (!subscribedTopics.contains(topic)) {
+            logger.info("Auto-subscribing to topic: {} as it was not in subscribed topics: {}", topic, subscribedTopics);
+            subscribeTopic(topic);
+        }
+        return partitionCounts(topic);
+    }
+
+    private Map<Integer, Map<String, Long>> partitionCounts(String topic) {
+        Map<Integer, Map<String, Long>> results = new HashMap<>();
+        Map<Integer, PollTally> partitions = partitionTallies.get(topic);
+        if (partitions != null) {
+            partitions.forEach((partition, tally) -> results.put(partition, tally.getCounts()));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the live tally for a topic, or null if no votes have been seen for it
+     */
+    public PollTally getTally(String topic) {
+        return topicTallies.get(topic);
     }
 
     public String getCoordinatorUrl() {
@@ -281,24 +664,24 @@ public class SubscriberService {
         return leaderBroker;
     }
 
-    private synchronized void incrementClock() {
-        logicalClock++;
+    private void incrementClock() {
+        clock.tick();
     }
 
-    public synchronized void updateClock(long receivedTimestamp) {
-        logicalClock = Math.max(logicalClock, receivedTimestamp) + 1;
+    public void updateClock(long receivedTimestamp) {
+        clock.update(receivedTimestamp);
     }
 
-    public synchronized long getLogicalClock() {
-        return logicalClock;
+    public long getLogicalClock() {
+        return clock.get();
     }
 
     /**
-     * Force a refresh of messages for a specific topic by manually fetching from Kafka
+     * Force a refresh of messages for a specific topic by replaying it from Kafka
      */
     public List<String> refreshMessagesForTopic(String topic) {
         incrementClock();
-        logger.info("Forcing refresh of messages for topic: {}, logical clock: {}", topic, logicalClock);
+        logger.info("Forcing refresh of messages for topic: {}, logical clock: {}", topic, clock.get());
         
         // Ensure we're subscribed to the topic
         if (!subscribedTopics.contains(topic)) {
@@ -306,17 +689,8 @@ public class SubscriberService {
             subscribeTopic(topic);
         }
         
-        // Manually fetch messages from Kafka
-        List<String> refreshedMessages = manuallyFetchMessagesFromKafka(topic);
-        
-        if (!refreshedMessages.isEmpty()) {
-            logger.info("Refreshed {} messages for topic {}", refreshedMessages.size(), topic);
-            // Update our in-memory store
-            topicMessages.put(topic, refreshedMessages);
-        } else {
-            logger.warn("No messages found during refresh for topic: {}", topic);
-        }
-        
-        return refreshedMessages;
+        List<String> messages = replayTopic(topic);
+        logger.info("Refreshed {} messages for topic {}", messages.size(), topic);
+        return messages;
     }
 } 
\ No newline at end of file
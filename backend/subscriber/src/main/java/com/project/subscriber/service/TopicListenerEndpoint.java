@@ -0,0 +1,92 @@
+package com.project.subscriber.service;
+
+import org.springframework.kafka.config.KafkaListenerEndpoint;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.kafka.support.converter.MessageConverter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Listener endpoint for a single topic, registered at runtime when the topic is
+ * subscribed to. The container gets its group, concurrency and batch settings
+ * from the listener container factory it is created with.
+ */
+public class TopicListenerEndpoint implements KafkaListenerEndpoint {
+
+    private final String id;
+    private final String topic;
+    private final Object listener;
+
+    /**
+     * @param listener the batch message listener; if it is also ConsumerSeekAware
+     *                 it is told about partition assignments
+     */
+    public TopicListenerEndpoint(String id, String topic, Object listener) {
+        this.id = id;
+        this.topic = topic;
+        this.listener = listener;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getGroupId() {
+        return null;
+    }
+
+    @Override
+    public String getGroup() {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getTopics() {
+        return List.of(topic);
+    }
+
+    @Override
+    public TopicPartitionOffset[] getTopicPartitionsToAssign() {
+        return null;
+    }
+
+    @Override
+    public Pattern getTopicPattern() {
+        return null;
+    }
+
+    @Override
+    public String getClientIdPrefix() {
+        return null;
+    }
+
+    @Override
+    public Integer getConcurrency() {
+        return null;
+    }
+
+    @Override
+    public Boolean getAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public Boolean getBatchListener() {
+        return true;
+    }
+
+    @Override
+    public void setupListenerContainer(MessageListenerContainer listenerContainer, MessageConverter messageConverter) {
+        listenerContainer.setupMessageListener(listener);
+    }
+
+    @Override
+    public boolean isSplitIterables() {
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package com.project.subscriber.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a whole topic from Kafka, from the beginning up to the end offsets it
+ * had when the replay started.
+ *
+ * Replays run on a small pool of long-lived consumers that are assigned the
+ * topic's partitions directly, so no consumer group is joined and no offsets
+ * are committed. Records are handed over one poll at a time rather than
+ * collected first. A replay requested while another one of the same topic is
+ * running joins the running one.
+ */
+@Service
+public class TopicReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicReplayer.class);
+
+    /**
+     * Receives the records of a replay
+     */
+    public interface ReplayHandler {
+
+        /**
+         * Called with each polled chunk of records, in offset order per partition
+         */
+        void onChunk(List<ConsumerRecord<String, String>> records);
+
+        /**
+         * Called once every record before the end offsets was handed over, before the replay completes
+         * @param endOffsets the offset the replay stopped at for each partition
+         */
+        void onComplete(Map<Integer, Long> endOffsets);
+    }
+
+    private final Map<String, Object> consumerConfig;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    // Consumers not in use; there are never more than pool-size consumers since replays run on pool-size threads
+    private final Deque<Consumer<String, String>> idleConsumers = new ArrayDeque<>();
+    // Set by shutdown, guarded by idleConsumers; consumers released afterwards are closed instead of pooled
+    private boolean shutdown = false;
+    private final AtomicInteger consumerCount = new AtomicInteger();
+
+    @Value("${subscriber.replay.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${subscriber.replay.poll-timeout-ms:500}")
+    private long pollTimeoutMs;
+
+    public TopicReplayer(ConsumerFactory<String, String> consumerFactory,
+                         @Value("${subscriber.replay.pool-size:2}") int poolSize,
+                         @Value("${subscriber.replay.chunk-size:1000}") int chunkSize) {
+        Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+        // Partitions are assigned directly; without a group nothing can be committed by accident
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, chunkSize);
+        this.consumerConfig = config;
+        this.executor = Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * Replays a topic, or joins the replay of it that is already running. A joined
+     * replay keeps the handler it was started with.
+     * @return the number of records replayed
+     */
+    public CompletableFuture<Long> replay(String topic, ReplayHandler handler) {
+        CompletableFuture<Long> created = new CompletableFuture<>();
+        CompletableFuture<Long> running = inFlight.putIfAbsent(topic, created);
+        if (running != null) {
+            logger.info("Joining running replay of topic {}", topic);
+            return running;
+        }
+        executor.execute(() -> {
+            try {
+                long records = run(topic, handler);
+                inFlight.remove(topic, created);
+                created.complete(records);
+            } catch (Throwable e) {
+                inFlight.remove(topic, created);
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    private long run(String topic, ReplayHandler handler) throws TimeoutException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Consumer<String, String> consumer = borrowConsumer();
+        try {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic, Duration.ofMillis(timeoutMs));
+            if (infos == null || infos.isEmpty()) {
+                throw new IllegalStateException("Topic " + topic + " does not exist");
+            }
+            List<TopicPartition> partitions = new ArrayList<>();
+            infos.forEach(info -> partitions.add(new TopicPartition(topic, info.partition())));
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions, Duration.ofMillis(timeoutMs));
+            consumer.seekToBeginning(partitions);
+
+            long records = 0;
+            Set<TopicPartition> remaining = new HashSet<>(partitions);
+            remaining.removeIf(partition -> consumer.position(partition) >= endOffsets.get(partition));
+            while (!remaining.isEmpty()) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new TimeoutException("Replay of topic " + topic + " did not reach the end offsets within " + timeoutMs + " ms");
+                }
+                ConsumerRecords<String, String> polled = consumer.poll(Duration.ofMillis(pollTimeoutMs));
+                List<ConsumerRecord<String, String>> chunk = new ArrayList<>(polled.count());
+                for (TopicPartition partition : polled.partitions()) {
+                    long end = endOffsets.get(partition);
+                    for (ConsumerRecord<String, String> record : polled.records(partition)) {
+                        // Records written after the replay started are left to the listener
+                        if (record.offset() < end) {
+                            chunk.add(record);
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    handler.onChunk(chunk);
+                    records += chunk.size();
+                }
+                remaining.removeIf(partition -> {
+                    if (consumer.position(partition) >= endOffsets.get(partition)) {
+                        consumer.pause(List.of(partition));
+                        return true;
+                    }
+                    return false;
+                });
+            }
+
+            Map<Integer, Long> ends = new HashMap<>();
+            endOffsets.forEach((partition, end) -> ends.put(partition.partition(), end));
+            handler.onComplete(ends);
+            logger.info("Replayed {} records of topic {} up to {}", records, topic, ends);
+            return records;
+        } finally {
+            releaseConsumer(consumer);
+        }
+    }
+
+    private Consumer<String, String> borrowConsumer() {
+        synchronized (idleConsumers) {
+            Consumer<String, String> consumer = idleConsumers.poll();
+            if (consumer != null) {
+                return consumer;
+            }
+        }
+        Map<String, Object> config = new HashMap<>(consumerConfig);
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, "subscriber-replay-" + consumerCount.incrementAndGet());
+        return new KafkaConsumer<>(config);
+    }
+
+    private void releaseConsumer(Consumer<String, String> consumer) {
+        try {
+            // Drops the assignment and any records fetched past the end offsets
+            consumer.unsubscribe();
+        } catch (Exception e) {
+            logger.warn("Closing replay consumer after failed cleanup", e);
+            consumer.close(Duration.ZERO);
+            return;
+        }
+        synchronized (idleConsumers) {
+            if (!shutdown) {
+                idleConsumers.push(consumer);
+                return;
+            }
+        }
+        // A replay that was still running at shutdown
+        consumer.close(Duration.ZERO);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (idleConsumers) {
+            shutdown = true;
+            idleConsumers.forEach(consumer -> consumer.close(Duration.ZERO));
+            idleConsumers.clear();
+        }
+    }
+}
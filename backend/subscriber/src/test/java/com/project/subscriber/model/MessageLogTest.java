@@ -0,0 +1,110 @@
+package com.project.subscriber.model;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageLogTest {
+
+    @Test
+    void votesAndRawMessagesReadBackUnchanged() {
+        MessageLog log = new MessageLog(2, 0, 0);
+        List<String> messages = List.of(
+                new Vote("alice", "yes").toMessage(),
+                "not a vote",
+                new Vote("bob", "no").toMessage(),
+                "{\"name\":\"carol\",\"vote\":\"yes\",\"at\":1}");
+        append(log, 0, 0, messages);
+
+        assertEquals(messages, log.getMessages());
+        assertEquals(4, log.size());
+    }
+
+    @Test
+    void readSinceContinuesFromTheCursorAcrossSegments() {
+        MessageLog log = new MessageLog(3, 0, 0);
+        append(log, 0, 0, List.of("a", "b", "c", "d"));
+
+        MessageDelta first = log.readSince(Map.of());
+        assertEquals(List.of("a", "b", "c", "d"), first.getMessages());
+        assertEquals("0:4", first.getCursor());
+
+        append(log, 0, 4, List.of("e", "f", "g"));
+        MessageDelta second = log.readSince(MessageDelta.parseCursor(first.getCursor()));
+        assertEquals(List.of("e", "f", "g"), second.getMessages());
+        assertEquals("0:7", second.getCursor());
+
+        MessageDelta third = log.readSince(MessageDelta.parseCursor(second.getCursor()));
+        assertTrue(third.getMessages().isEmpty());
+        assertEquals("0:7", third.getCursor());
+    }
+
+    @Test
+    void readSinceTracksEachPartitionSeparately() {
+        MessageLog log = new MessageLog(2, 0, 0);
+        append(log, 0, 10, List.of("p0-10", "p0-11"));
+        append(log, 1, 5, List.of("p1-5", "p1-6", "p1-7"));
+        append(log, 0, 12, List.of("p0-12"));
+
+        MessageDelta delta = log.readSince(Map.of(0, 11L, 1, 7L));
+        assertEquals(List.of("p0-11", "p1-7", "p0-12"), delta.getMessages());
+        assertEquals("0:13,1:8", delta.getCursor());
+
+        // Partitions missing from the cursor are read from the oldest retained message
+        MessageDelta partial = log.readSince(Map.of(0, 13L));
+        assertEquals(List.of("p1-5", "p1-6", "p1-7"), partial.getMessages());
+        assertEquals("0:13,1:8", partial.getCursor());
+    }
+
+    @Test
+    void readSinceAfterRetentionStartsAtTheOldestRetainedMessage() {
+        MessageLog log = new MessageLog(2, 4, 0);
+        append(log, 0, 0, List.of("m0", "m1", "m2", "m3", "m4", "m5", "m6"));
+
+        // Whole segments are dropped, so only three messages are left under a limit of four
+        assertEquals(List.of("m4", "m5", "m6"), log.getMessages());
+
+        MessageDelta stale = log.readSince(Map.of(0, 1L));
+        assertEquals(List.of("m4", "m5", "m6"), stale.getMessages());
+        assertEquals("0:7", stale.getCursor());
+
+        MessageDelta current = log.readSince(Map.of(0, 5L));
+        assertEquals(List.of("m5", "m6"), current.getMessages());
+    }
+
+    @Test
+    void retentionByBytesKeepsTheSegmentBeingWritten() {
+        MessageLog log = new MessageLog(2, 0, 1);
+        append(log, 0, 0, List.of("m0", "m1", "m2"));
+
+        assertEquals(List.of("m2"), log.getMessages());
+        assertEquals(List.of(new MessageLog.Entry(0, 2, "m2")), log.getEntries());
+    }
+
+    @Test
+    void viewsTakenEarlierKeepTheirSize() {
+        MessageLog log = new MessageLog(2, 0, 0);
+        append(log, 0, 0, List.of("m0", "m1", "m2"));
+        List<String> view = log.getMessages();
+
+        append(log, 0, 3, List.of("m3"));
+        assertEquals(List.of("m0", "m1", "m2"), new ArrayList<>(view));
+        assertEquals(4, log.size());
+    }
+
+    private static void append(MessageLog log, int partition, long firstOffset, List<String> messages) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        List<Vote> votes = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            records.add(new ConsumerRecord<>("topic", partition, firstOffset + i, null, messages.get(i)));
+            votes.add(Vote.parse(messages.get(i)));
+        }
+        log.appendAll(records, votes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.project.subscriber.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contention benchmark of LamportClock against the synchronized clock it replaced.
+ *
+ * Each thread mixes local ticks with merges of received timestamps, the way
+ * request and listener threads use the clock. Only runs on request, since the
+ * numbers mean little on a loaded or single-core machine:
+ * {@code mvn test -Dtest=LamportClockBenchmark -Dbenchmark=true [-Dbenchmark.threads=8]}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LamportClockBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int OPERATIONS_PER_THREAD = 2_000_000;
+    // One in this many operations merges a received timestamp instead of ticking
+    private static final int UPDATE_EVERY = 4;
+
+    @Test
+    void compareUnderContention() throws InterruptedException {
+        int threads = Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors() * 2);
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            measureSynchronized(threads);
+            measureLockFree(threads);
+        }
+
+        long synchronizedNanos = 0;
+        long lockFreeNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            synchronizedNanos += measureSynchronized(threads);
+            lockFreeNanos += measureLockFree(threads);
+        }
+
+        long operations = (long) threads * OPERATIONS_PER_THREAD * MEASURED_ROUNDS;
+        System.out.printf("LamportClock contention benchmark, %d threads, %d ops per round%n",
+                threads, (long) threads * OPERATIONS_PER_THREAD);
+        System.out.printf("  synchronized: %6.1f ns/op%n", (double) synchronizedNanos / operations);
+        System.out.printf("  lock-free:    %6.1f ns/op%n", (double) lockFreeNanos / operations);
+    }
+
+    private static long measureSynchronized(int threads) throws InterruptedException {
+        SynchronizedClock clock = new SynchronizedClock();
+        return measure(threads, clock::tick, clock::update);
+    }
+
+    private static long measureLockFree(int threads) throws InterruptedException {
+        LamportClock clock = new LamportClock();
+        return measure(threads, clock::tick, clock::update);
+    }
+
+    private static long measure(int threads, LongSupplier tick, LongUnaryOperator update) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] sinks = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long last = 0;
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        // Received timestamps trail or slightly lead the local clock, as peers' clocks do
+                        long received = i % UPDATE_EVERY == 0 ? Math.max(0, last + random.nextInt(-8, 8)) : -1;
+                        last = received < 0 ? tick.getAsLong() : update.applyAsLong(received);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sinks[index] = last;
+                done.countDown();
+            });
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        for (long sink : sinks) {
+            // Every thread's last reading is at least its own operation count
+            assertTrue(sink >= OPERATIONS_PER_THREAD);
+        }
+        return elapsed;
+    }
+
+    /**
+     * The clock as it was before LamportClock: a long guarded by the owner's monitor
+     */
+    private static final class SynchronizedClock {
+        private long time = 0;
+
+        synchronized long tick() {
+            return ++time;
+        }
+
+        synchronized long update(long receivedTimestamp) {
+            time = Math.max(time, receivedTimestamp) + 1;
+            return time;
+        }
+    }
+}